@@ -5,8 +5,9 @@ import java.util.*;
 
 import warlight.bot.BotParser;
 import warlight.bot.Bot;
-import warlight.bot.fight.FightSimulation.FightAttackersResults;
-import warlight.bot.fight.FightSimulation.FightDefendersResults;
+import warlight.bot.fight.FightAttackersTable;
+import warlight.bot.fight.FightDefendersTable;
+import warlight.bot.fight.FightTables;
 import warlight.bot.map.RegionBFS;
 import warlight.bot.map.RegionBFS.*;
 import warlight.engine.Config;
@@ -14,18 +15,17 @@ import warlight.engine.RunGame;
 import warlight.game.*;
 import warlight.game.move.*;
 import warlight.game.world.WorldRegion;
-import warlight.utils.Util;
 
 public class AggressiveBot implements Bot 
 {
     GameState state;
 
-    FightAttackersResults aRes;
-    FightDefendersResults dRes;
+    FightAttackersTable aRes;
+    FightDefendersTable dRes;
     
     public AggressiveBot() {
-        aRes = FightAttackersResults.loadFromFile(Util.findFile("Warlight-Bots/FightSimulation-Attackers-A200-D200.obj"));
-        dRes = FightDefendersResults.loadFromFile(Util.findFile("Warlight-Bots/FightSimulation-Defenders-A200-D200.obj"));
+        aRes = FightTables.getAttackers();
+        dRes = FightTables.getDefenders();
     }
 
     @Override
@@ -38,6 +38,11 @@ public class AggressiveBot implements Bot
     
     @Override
     public WorldRegion chooseRegion(GameState state) {
+        return state.getRegion(chooseRegionId(state)).getWorldRegion();
+    }
+    
+    @Override
+    public int chooseRegionId(GameState state) {
         ArrayList<Region> choosable = state.getPickableRegions();
         
         int min = Integer.MAX_VALUE;
@@ -51,10 +56,15 @@ public class AggressiveBot implements Bot
             }
         }
         
-        return best.getWorldRegion();
+        return best.getId();
     }
     
+    /**
+     * Lower is better. The standard map has a fixed order of continents, on other maps smaller continents
+     * (quicker to complete) are preferred.
+     */
     public int getPreferredContinentPriority(Continent continent) {
+        if (continent.getWorldContinent() == null) return continent.getRegions().size();
         switch (continent.getWorldContinent()) {
         case Australia:     return 1;
         case South_America: return 2;
@@ -134,7 +144,7 @@ public class AggressiveBot implements Bot
         
         int me = state.me();
         List<AttackTransferMove> result = new ArrayList<AttackTransferMove>();
-        Collection<Region> regions = state.regionsOwnedBy(me);
+        RegionSet regions = state.regionSetOwnedBy(me);
         
         // CAPTURE ALL REGIONS WE CAN
         for (Region from : regions) {
@@ -158,7 +168,8 @@ public class AggressiveBot implements Bot
         // MOVE LEFT OVERS CLOSER TO THE FRONT
         for (Region from : regions) {
             if (hasOnlyMyNeighbours(from) && from.getArmies() > 1) {
-                result.add(moveToFront(from));
+                AttackTransferMove move = moveToFront(from);
+                if (move != null) result.add(move);
             }
         }
         
@@ -176,14 +187,10 @@ public class AggressiveBot implements Bot
         int attackers = from.getArmies() - 1;
         int defenders = to.getArmies();
         
-        for (int a = defenders; a <= attackers; ++a) {
-            double chance = aRes.getAttackersWinChance(a, defenders);
-            if (chance >= winProbability) {
-                return a;
-            }
-        }
+        // the win chance grows with the attackers => the least sufficient number of at least 'defenders' attackers
+        int need = Math.max(aRes.getMinAttackers(defenders, winProbability), defenders);
         
-        return Integer.MAX_VALUE;
+        return need <= attackers ? need : Integer.MAX_VALUE;
     }
         
     private AttackTransferMove transfer(Region from, Region to) {
@@ -194,6 +201,9 @@ public class AggressiveBot implements Bot
     private WorldRegion moveToFrontRegion;
     
     private AttackTransferMove moveToFront(Region from) {
+        // RegionBFS walks WorldRegions, which exist on the standard map only
+        if (from.getWorldRegion() == null) return moveToFrontById(from);
+        
         RegionBFS<BFSNode> bfs = new RegionBFS<BFSNode>();
         moveToFrontRegion = null;
         bfs.run(from.getWorldRegion(), new BFSVisitor<BFSNode>() {
@@ -220,6 +230,33 @@ public class AggressiveBot implements Bot
         return null;
     }
     
+    /**
+     * {@link #moveToFront(Region)} for maps other than the standard one: the first step of a shortest path
+     * towards the nearest region that is not surrounded by my regions only.
+     */
+    private AttackTransferMove moveToFrontById(Region from) {
+        int regionCount = state.getMap().getTopology().getRegionCount();
+        int[] firstStep = new int[regionCount + 1];
+        int[] queue = new int[regionCount];
+        int head = 0, tail = 0;
+        
+        firstStep[from.getId()] = from.getId();
+        queue[tail++] = from.getId();
+        while (head < tail) {
+            Region region = state.getRegion(queue[head++]);
+            for (Region next : region.getNeighbors()) {
+                if (firstStep[next.getId()] != 0) continue;
+                firstStep[next.getId()] = region == from ? next.getId() : firstStep[region.getId()];
+                if (!hasOnlyMyNeighbours(next)) {
+                    return transfer(from, state.getRegion(firstStep[next.getId()]));
+                }
+                queue[tail++] = next.getId();
+            }
+        }
+        
+        return null;
+    }
+    
     
     public static void runInternal() {
         Config config = new Config();
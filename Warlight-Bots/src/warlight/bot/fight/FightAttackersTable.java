@@ -0,0 +1,54 @@
+package warlight.bot.fight;
+
+/**
+ * Read-only view of attackers-oriented fight results ({@link FightSimulation.FightAttackersResults}):
+ * fights whose attackers win chance fell below the trim are not stored and read as lost by the attackers.
+ */
+public interface FightAttackersTable {
+
+    public int getAttackersMax();
+
+    public int getDefendersMax();
+
+    /**
+     * @return 0 if the fight is not stored
+     */
+    public double getAttackersWinChance(int attackers, int defenders);
+
+    /**
+     * @return 1 if the fight is not stored
+     */
+    public double getDefendersWinChance(int attackers, int defenders);
+
+    /**
+     * @return 'attackers' if the fight is not stored
+     */
+    public double getExpectedAttackersDeaths(int attackers, int defenders);
+
+    /**
+     * @return null if the fight is not stored
+     */
+    public Double getExpectedDefendersDeaths(int attackers, int defenders);
+
+    /**
+     * Inverse of {@link #getAttackersWinChance(int, int)}: binary search over the column of 'defenders',
+     * assuming the win chance grows with the attackers.
+     * 
+     * That holds up to 0.999999 only: above it the trimmed computation makes the win chances of the shipped A200 table
+     * wobble (a cell drops up to 1.6e-7 below a cell with fewer attackers), so a 'winChance' above 0.999999 may get
+     * a different answer than scanning the column from 1 attacker up; the answer still wins with at least 'winChance'.
+     * @return least number of attackers (up to {@link #getAttackersMax()}) that win against 'defenders' with at least
+     *         'winChance', Integer.MAX_VALUE if there is none
+     */
+    public default int getMinAttackers(int defenders, double winChance) {
+        int low = 1, high = getAttackersMax();
+        if (high < 1 || getAttackersWinChance(high, defenders) < winChance) return Integer.MAX_VALUE;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getAttackersWinChance(mid, defenders) >= winChance) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,50 @@
+package warlight.bot.fight;
+
+/**
+ * Read-only view of defenders-oriented fight results ({@link FightSimulation.FightDefendersResults}):
+ * fights whose defenders win chance fell below the trim are not stored and read as lost by the defenders.
+ */
+public interface FightDefendersTable {
+
+    public int getAttackersMax();
+
+    public int getDefendersMax();
+
+    /**
+     * @return 1 if the fight is not stored
+     */
+    public double getAttackersWinChance(int attackers, int defenders);
+
+    /**
+     * @return 0 if the fight is not stored
+     */
+    public double getDefendersWinChance(int attackers, int defenders);
+
+    /**
+     * @return null if the fight is not stored
+     */
+    public Double getExpectedAttackersDeaths(int attackers, int defenders);
+
+    /**
+     * @return 'defenders' if the fight is not stored
+     */
+    public double getExpectedDefendersDeaths(int attackers, int defenders);
+
+    /**
+     * Inverse of {@link #getDefendersWinChance(int, int)}: binary search over the row of 'attackers',
+     * the win chance growing with the defenders.
+     * @return least number of defenders (up to {@link #getDefendersMax()}) that hold against 'attackers' with at least
+     *         'winChance', Integer.MAX_VALUE if there is none
+     */
+    public default int getMinDefenders(int attackers, double winChance) {
+        int low = 1, high = getDefendersMax();
+        if (high < 1 || getDefendersWinChance(attackers, high) < winChance) return Integer.MAX_VALUE;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getDefendersWinChance(attackers, mid) >= winChance) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+}
@@ -0,0 +1,132 @@
+package warlight.bot.fight;
+
+import java.util.Random;
+
+import warlight.game.GameState;
+import warlight.game.GameState.FightSide;
+
+/**
+ * Full outcome distribution of one continual fight of 'attackers' vs. 'defenders', as the engine reports it:
+ * -- attackers win with 1..attackers survivors;
+ * -- defenders win with 1..defenders survivors (a fight where both sides are wiped out leaves the defenders 1 army).
+ *
+ * Stored as one cumulative array over the outcomes, "attackers win losing k" (k = 0..attackers-1) followed by
+ * "defenders win losing j" (j = 0..defenders-1). Outcomes at both ends whose chance is not above the trim are dropped,
+ * as {@link FightSimulation#compute(double)} drops fight states, so that the arrays stay short.
+ * Immutable and thread-safe; create it by {@link FightSimulation#getDistribution(double)} or {@link FightDistributions}.
+ */
+public class FightDistribution {
+
+    private final int attackers;
+    private final int defenders;
+
+    private final double attackersWinChance;
+
+    /**
+     * outcome index of cumulative[0]
+     */
+    private final int first;
+
+    /**
+     * cumulative[i] = chance of the outcomes first..first+i (not renormalized after trimming)
+     */
+    private final float[] cumulative;
+
+    /**
+     * @param outcomes chances of the outcomes in the order above, attackers + defenders of them
+     */
+    FightDistribution(int attackers, int defenders, double[] outcomes, double trim) {
+        this.attackers = attackers;
+        this.defenders = defenders;
+
+        double win = 0;
+        for (int o = 0; o < attackers; ++o) win += outcomes[o];
+        this.attackersWinChance = win;
+
+        int low = 0, high = attackers + defenders - 1;
+        while (low < high && outcomes[low] <= trim) ++low;
+        while (high > low && outcomes[high] <= trim) --high;
+        first = low;
+        cumulative = new float[high - low + 1];
+        double sum = 0;
+        for (int o = low; o <= high; ++o) {
+            sum += outcomes[o];
+            cumulative[o - low] = (float)sum;
+        }
+    }
+
+    public int getAttackers() {
+        return attackers;
+    }
+
+    public int getDefenders() {
+        return defenders;
+    }
+
+    public double getAttackersWinChance() {
+        return attackersWinChance;
+    }
+
+    public double getDefendersWinChance() {
+        return 1 - attackersWinChance;
+    }
+
+    /**
+     * @return number of outcomes stored after trimming
+     */
+    public int getSize() {
+        return cumulative.length;
+    }
+
+    private double outcome(int o) {
+        int i = o - first;
+        if (i < 0 || i >= cumulative.length) return 0;
+        return cumulative[i] - (i > 0 ? cumulative[i - 1] : 0);
+    }
+
+    /**
+     * @return chance that the attackers win with 'survivors' armies left; 0 if trimmed
+     */
+    public double getAttackersSurviveChance(int survivors) {
+        if (survivors < 1 || survivors > attackers) return 0;
+        return outcome(attackers - survivors);
+    }
+
+    /**
+     * @return chance that the defenders win with 'survivors' armies left; 0 if trimmed
+     */
+    public double getDefendersSurviveChance(int survivors) {
+        if (survivors < 1 || survivors > defenders) return 0;
+        return outcome(attackers + defenders - survivors);
+    }
+
+    /**
+     * Samples an outcome (among the stored ones) by binary search over the cumulative array, O(log n);
+     * consumes one random.nextDouble().
+     */
+    public GameState.FightResult sample(Random random) {
+        GameState.FightResult result = new GameState.FightResult();
+        sample(random, result);
+        return result;
+    }
+
+    /**
+     * As {@link #sample(Random)}, writing the outcome into 'result'.
+     */
+    public void sample(Random random, GameState.FightResult result) {
+        float u = (float)(random.nextDouble() * cumulative[cumulative.length - 1]);
+        int low = 0, high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (u < cumulative[mid]) high = mid;
+            else low = mid + 1;
+        }
+        int o = first + low;
+        if (o < attackers) {
+            result.set(FightSide.ATTACKER, o, defenders);
+        } else {
+            result.set(FightSide.DEFENDER, attackers, o - attackers);
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package warlight.bot.fight;
+
+import java.util.Random;
+
+import warlight.game.GameState;
+import warlight.game.GameState.FightSide;
+
+/**
+ * {@link FightDistribution}s of all fights up to attackersMax vs. defendersMax, each built on first use.
+ *
+ * All of them come from one lattice of path chances: g(i, j) = chance that the fight passes the state where
+ * i attackers and j defenders have died, both sides still fighting. It does not depend on the starting armies
+ * as long as i < attackers and j < defenders, so for 'attackers' vs. 'defenders':
+ *   attackers win losing k: g(k, defenders-1) * a0d1 + g(k-1, defenders-1) * a1d1
+ *   defenders win losing j: g(attackers-1, j) * a1d0 + g(attackers-1, j-1) * a1d1
+ *   both wiped out:         g(attackers-1, defenders-1) * a1d1, reported as the defenders losing defenders-1
+ * with the same transitions as {@link FightSimulation}. The lattice takes attackersMax * defendersMax doubles
+ * and a distribution O(attackers + defenders) to build; stored distributions are trimmed by 'trim'.
+ * Thread-safe: two threads may build the same distribution, but they are immutable and equal.
+ */
+public class FightDistributions {
+
+    private final int attackersMax;
+    private final int defendersMax;
+    private final double trim;
+
+    private final double a1d1;
+    private final double a1d0;
+    private final double a0d1;
+
+    /**
+     * i * defendersMax + j -> g(i, j)
+     */
+    private final double[] paths;
+
+    private final FightDistribution[][] distributions;
+
+    /**
+     * @param defenderDieChance chance that a defending army is killed in a round
+     * @param attackerDieChance chance that an attacking army is killed in a round
+     * @param trim outcomes at both ends of a distribution with chance not above it are not stored
+     */
+    public FightDistributions(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double trim) {
+        this.attackersMax = attackersMax;
+        this.defendersMax = defendersMax;
+        this.trim = trim;
+
+        double[] transitions = FightUtils.transitions(defenderDieChance, attackerDieChance);
+        this.a1d1 = transitions[0];
+        this.a1d0 = transitions[1];
+        this.a0d1 = transitions[2];
+
+        paths = new double[attackersMax * defendersMax];
+        for (int i = 0; i < attackersMax; ++i) {
+            for (int j = 0; j < defendersMax; ++j) {
+                if (i == 0 && j == 0) {
+                    paths[0] = 1;
+                    continue;
+                }
+                double g = 0;
+                if (j > 0) g += this.a0d1 * path(i, j - 1);
+                if (i > 0) g += this.a1d0 * path(i - 1, j);
+                if (i > 0 && j > 0) g += this.a1d1 * path(i - 1, j - 1);
+                paths[i * defendersMax + j] = g;
+            }
+        }
+
+        distributions = new FightDistribution[attackersMax + 1][defendersMax + 1];
+    }
+
+    private double path(int attackersDied, int defendersDied) {
+        return paths[attackersDied * defendersMax + defendersDied];
+    }
+
+    public int getAttackersMax() {
+        return attackersMax;
+    }
+
+    public int getDefendersMax() {
+        return defendersMax;
+    }
+
+    /**
+     * @param attackers 1..attackersMax
+     * @param defenders 1..defendersMax
+     */
+    public FightDistribution get(int attackers, int defenders) {
+        if (attackers < 1 || defenders < 1 || attackers > attackersMax || defenders > defendersMax) {
+            throw new IllegalArgumentException("Fight " + attackers + " vs. " + defenders + " outside of A" + attackersMax + "-D" + defendersMax);
+        }
+        FightDistribution result = distributions[attackers][defenders];
+        if (result == null) {
+            result = build(attackers, defenders);
+            distributions[attackers][defenders] = result;
+        }
+        return result;
+    }
+
+    private FightDistribution build(int attackers, int defenders) {
+        double[] outcomes = new double[attackers + defenders];
+        for (int k = 0; k < attackers; ++k) {
+            outcomes[k] = path(k, defenders - 1) * a0d1 + (k > 0 ? path(k - 1, defenders - 1) * a1d1 : 0);
+        }
+        for (int j = 0; j < defenders; ++j) {
+            outcomes[attackers + j] = path(attackers - 1, j) * a1d0 + (j > 0 ? path(attackers - 1, j - 1) * a1d1 : 0);
+        }
+        // defenders get extra army if both armies are wiped out
+        outcomes[attackers + defenders - 1] += path(attackers - 1, defenders - 1) * a1d1;
+        return new FightDistribution(attackers, defenders, outcomes, trim);
+    }
+
+    /**
+     * Compares distributions with {@link FightSimulation} and sample means with the expected deaths.
+     */
+    public static void main(String[] args) {
+        long time = System.currentTimeMillis();
+        FightDistributions table = new FightDistributions(200, 200, 0.6, 0.7, 0.00000001);
+        System.out.println("DISTRIBUTIONS A200-D200 lattice in " + (System.currentTimeMillis() - time) + " ms");
+
+        int[][] fights = { {1, 1}, {3, 2}, {10, 10}, {25, 15}, {60, 80}, {200, 150} };
+        Random random = new Random(1);
+        GameState.FightResult sample = new GameState.FightResult();
+        for (int[] fight : fights) {
+            int a = fight[0], d = fight[1];
+            FightSimulation simulation = new FightSimulation(a, d, 0.6, 0.7);
+            simulation.quiet = true;
+            FightResult expected = simulation.compute(0.00000001).getResult();
+            FightDistribution reference = simulation.getDistribution(0.00000001);
+            FightDistribution distribution = table.get(a, d);
+
+            double maxDifference = 0;
+            for (int s = 1; s <= a; ++s) maxDifference = Math.max(maxDifference, Math.abs(distribution.getAttackersSurviveChance(s) - reference.getAttackersSurviveChance(s)));
+            for (int s = 1; s <= d; ++s) maxDifference = Math.max(maxDifference, Math.abs(distribution.getDefendersSurviveChance(s) - reference.getDefendersSurviveChance(s)));
+
+            int samples = 200000, wins = 0;
+            double attackersDeaths = 0, defendersDeaths = 0;
+            for (int i = 0; i < samples; ++i) {
+                distribution.sample(random, sample);
+                if (sample.winner == FightSide.ATTACKER) ++wins;
+                attackersDeaths += sample.attackersDestroyed;
+                defendersDeaths += sample.defendersDestroyed;
+            }
+            System.out.println(String.format("A%d vs. D%d: %d outcomes stored, max difference %.2e, win %.4f / %.4f, attackers deaths %.3f / %.3f, defenders deaths %.3f / %.3f",
+                                             a, d, distribution.getSize(), maxDifference,
+                                             (double)wins / samples, expected.attackersWinChance,
+                                             attackersDeaths / samples, expected.expectedAttackersDeaths,
+                                             defendersDeaths / samples, expected.expectedDefendersDeaths));
+        }
+    }
+
+}
@@ -0,0 +1,215 @@
+package warlight.bot.fight;
+
+import java.io.File;
+
+import warlight.bot.fight.FightSimulation.FightAttackersResults;
+import warlight.bot.fight.FightSimulation.FightDefendersResults;
+
+/**
+ * Computes the results of ALL fights up to attackersMax vs. defendersMax in a single backward pass over the lattice
+ * of fight states, instead of one {@link FightSimulation} per pair as {@link FightSimulation#GenerateFightResults} does.
+ *
+ * Fight state (a, d) = armies still alive. One round (with the "nobody dies" outcome divided between the others,
+ * as in {@link FightSimulation}) leads to (a-1, d-1), (a-1, d) or (a, d-1); hence for every start (a, d):
+ *   W(a, d)  = a0d1 * W(a, d-1)  + a1d0 * W(a-1, d)  + a1d1 * W(a-1, d-1),            W(a, 0) = 1, W(0, d) = 0
+ *   L(a, d)  = the same recursion,                                                     L(a, 0) = 0, L(0, d) = 1
+ *   EA(a, d) = a0d1 * EA(a, d-1) + a1d0 * (1 + EA(a-1, d)) + a1d1 * (1 + EA(a-1, d-1)), EA = 0 on the border
+ *   ED(a, d) = a0d1 * (1 + ED(a, d-1)) + a1d0 * ED(a-1, d) + a1d1 * (1 + ED(a-1, d-1)), ED = 0 on the border but ED(0, 0) = -1
+ * W / L = attackers / defenders win chance, EA / ED = expected attackers / defenders deaths; ED(0, 0) = -1 gives
+ * the defenders their extra army when both sides are wiped out. That is O(attackersMax * defendersMax) for the whole table.
+ *
+ * The results are exact: no state is trimmed as by {@link FightSimulation#compute(double)}, so they may differ
+ * from the per-pair ones by about the computation trim.
+ */
+public class FightLattice {
+
+    private final int attackersMax;
+    private final int defendersMax;
+    private final double defenderDieChance;
+    private final double attackerDieChance;
+
+    private final double a1d1;
+    private final double a1d0;
+    private final double a0d1;
+
+    /**
+     * a * (defendersMax + 1) + d -> value for the fight of a attackers vs. d defenders
+     */
+    private final double[] attackersWin;
+    private final double[] defendersWin;
+    private final double[] attackersDeaths;
+    private final double[] defendersDeaths;
+
+    /**
+     * @param defenderDieChance chance that a defending army is killed in a round
+     * @param attackerDieChance chance that an attacking army is killed in a round
+     */
+    public FightLattice(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance) {
+        this.attackersMax = attackersMax;
+        this.defendersMax = defendersMax;
+        this.defenderDieChance = defenderDieChance;
+        this.attackerDieChance = attackerDieChance;
+
+        double[] transitions = FightUtils.transitions(defenderDieChance, attackerDieChance);
+        this.a1d1 = transitions[0];
+        this.a1d0 = transitions[1];
+        this.a0d1 = transitions[2];
+
+        int size = (attackersMax + 1) * (defendersMax + 1);
+        attackersWin = new double[size];
+        defendersWin = new double[size];
+        attackersDeaths = new double[size];
+        defendersDeaths = new double[size];
+    }
+
+    public int getAttackersMax() {
+        return attackersMax;
+    }
+
+    public int getDefendersMax() {
+        return defendersMax;
+    }
+
+    public FightLattice compute() {
+        int stride = defendersMax + 1;
+
+        for (int a = 0; a <= attackersMax; ++a) {
+            for (int d = 0; d <= defendersMax; ++d) {
+                int i = a * stride + d;
+                if (a == 0 || d == 0) {
+                    attackersWin[i] = a > 0 ? 1 : 0;
+                    defendersWin[i] = a > 0 ? 0 : 1;
+                    attackersDeaths[i] = 0;
+                    defendersDeaths[i] = a == 0 && d == 0 ? -1 : 0;
+                    continue;
+                }
+                int down = i - 1;               // (a, d-1)
+                int left = i - stride;          // (a-1, d)
+                int diagonal = i - stride - 1;  // (a-1, d-1)
+                attackersWin[i] = a0d1 * attackersWin[down] + a1d0 * attackersWin[left] + a1d1 * attackersWin[diagonal];
+                defendersWin[i] = a0d1 * defendersWin[down] + a1d0 * defendersWin[left] + a1d1 * defendersWin[diagonal];
+                attackersDeaths[i] = a0d1 * attackersDeaths[down] + a1d0 * (1 + attackersDeaths[left]) + a1d1 * (1 + attackersDeaths[diagonal]);
+                defendersDeaths[i] = a0d1 * (1 + defendersDeaths[down]) + a1d0 * defendersDeaths[left] + a1d1 * (1 + defendersDeaths[diagonal]);
+            }
+        }
+
+        return this;
+    }
+
+    /**
+     * @return result of the fight of 'attackers' vs. 'defenders', both at least 1
+     */
+    public FightResult getResult(int attackers, int defenders) {
+        int i = attackers * (defendersMax + 1) + defenders;
+        FightResult result = new FightResult();
+        result.attackersWinChance = attackersWin[i];
+        result.defendersWinChance = defendersWin[i];
+        result.expectedAttackersDeaths = attackersDeaths[i];
+        result.expectedDefendersDeaths = defendersDeaths[i];
+        return result;
+    }
+
+    /**
+     * Same content as {@link FightSimulation#GenerateFightResults} stores: for every number of defenders, from the most
+     * attackers down until the attackers win chance drops below 'attackersWinChanceTrim', that one stored as null.
+     * @param computationAttackersWinChanceTrim only recorded in the results, the lattice does not trim
+     */
+    public FightAttackersResults getAttackersResults(double computationAttackersWinChanceTrim, double attackersWinChanceTrim) {
+        FightAttackersResults results = new FightAttackersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance,
+                                                                  computationAttackersWinChanceTrim, attackersWinChanceTrim);
+        for (int defenders = 1; defenders <= defendersMax; ++defenders) {
+            for (int attackers = attackersMax; attackers > 0; --attackers) {
+                FightResult result = getResult(attackers, defenders);
+                if (result.attackersWinChance < attackersWinChanceTrim) {
+                    // having fewer attackers won't help us
+                    break;
+                }
+                results.results[attackers][defenders] = result;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Same content as {@link FightSimulation#GenerateFightResults} stores: for every number of attackers, from the most
+     * defenders down until the defenders win chance drops below 'defendersWinChanceTrim', that one stored as null.
+     * @param computationAttackersWinChanceTrim only recorded in the results, the lattice does not trim
+     */
+    public FightDefendersResults getDefendersResults(double computationAttackersWinChanceTrim, double defendersWinChanceTrim) {
+        FightDefendersResults results = new FightDefendersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance,
+                                                                  computationAttackersWinChanceTrim, defendersWinChanceTrim);
+        for (int attackers = 1; attackers <= attackersMax; ++attackers) {
+            for (int defenders = defendersMax; defenders > 0; --defenders) {
+                FightResult result = getResult(attackers, defenders);
+                if (result.defendersWinChance < defendersWinChanceTrim) {
+                    // having fewer defenders won't help us
+                    break;
+                }
+                results.results[attackers][defenders] = result;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Drop-in replacement of {@link FightSimulation#GenerateFightResults}, writing the same files (.obj and .bin).
+     */
+    public static void GenerateFightResults(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double computationAttackersWinChanceTrim, double attackersWinChanceTrim, double defendersWinChanceTrim, File attackersFile, File defendersFile) {
+        long time = System.currentTimeMillis();
+        FightLattice lattice = new FightLattice(attackersMax, defendersMax, defenderDieChance, attackerDieChance).compute();
+        System.out.println("LATTICE A:" + attackersMax + " vs. D:" + defendersMax + " computed in " + (System.currentTimeMillis() - time) + " ms");
+
+        FightAttackersResults attackersResults = lattice.getAttackersResults(computationAttackersWinChanceTrim, attackersWinChanceTrim);
+        System.out.println("SAVING FILE: " + attackersFile.getAbsolutePath());
+        attackersResults.saveToFile(attackersFile);
+        MappedFightResults.saveToFile(attackersResults, MappedFightResults.binFile(attackersFile.getPath()));
+
+        FightDefendersResults defendersResults = lattice.getDefendersResults(computationAttackersWinChanceTrim, defendersWinChanceTrim);
+        System.out.println("SAVING FILE: " + defendersFile.getAbsolutePath());
+        defendersResults.saveToFile(defendersFile);
+        MappedFightResults.saveToFile(defendersResults, MappedFightResults.binFile(defendersFile.getPath()));
+
+        System.out.println("---// DONE //---");
+    }
+
+    /**
+     * Compares the lattice with the shipped A200-D200 tables (generated per pair) and times larger lattices.
+     */
+    public static void main(String[] args) {
+        FightLattice lattice = new FightLattice(200, 200, 0.6, 0.7).compute();
+        compare(lattice.getAttackersResults(0.00000001, 0.001), FightTables.getAttackers("Warlight-Bots/FightSimulation-Attackers-A200-D200.obj"));
+        compare(lattice.getDefendersResults(0.00000001, 0.001), FightTables.getDefenders("Warlight-Bots/FightSimulation-Defenders-A200-D200.obj"));
+
+        for (int size : new int[] { 200, 500, 1000 }) {
+            long time = System.nanoTime();
+            new FightLattice(size, size, 0.6, 0.7).compute();
+            System.out.println("LATTICE A:" + size + " vs. D:" + size + " -> " + (System.nanoTime() - time) / 1000000 + " ms");
+        }
+
+        // EXAMPLE HOW TO GENERATE AND SAVE THE WHOLE MATRIX...
+        //GenerateFightResults(1000, 1000, 0.6, 0.7, 0.00000001, 0.001, 0.001, new File("FightSimulation-Attackers-A1000-D1000.obj"), new File("FightSimulation-Defenders-A1000-D1000.obj"));
+    }
+
+    private static void compare(FightSimulation.FightResults lattice, Object stored) {
+        FightSimulation.FightResults reference = (FightSimulation.FightResults)stored;
+        double maxError = 0;
+        int nullsDiffer = 0;
+        for (int a = 1; a <= lattice.getAttackersMax(); ++a) {
+            for (int d = 1; d <= lattice.getDefendersMax(); ++d) {
+                FightResult mine = lattice.getResult(a, d);
+                FightResult theirs = reference.getResult(a, d);
+                if ((mine == null) != (theirs == null)) {
+                    ++nullsDiffer;
+                    continue;
+                }
+                if (mine == null) continue;
+                maxError = Math.max(maxError, Math.abs(mine.attackersWinChance - theirs.attackersWinChance));
+                maxError = Math.max(maxError, Math.abs(mine.defendersWinChance - theirs.defendersWinChance));
+                maxError = Math.max(maxError, Math.abs(mine.expectedAttackersDeaths - theirs.expectedAttackersDeaths));
+                maxError = Math.max(maxError, Math.abs(mine.expectedDefendersDeaths - theirs.expectedDefendersDeaths));
+            }
+        }
+        System.out.println(lattice.getClass().getSimpleName() + ": max difference " + maxError + ", stored / not stored differs for " + nullsDiffer + " fights");
+    }
+
+}
@@ -0,0 +1,359 @@
+package warlight.bot.fight;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fight results for any die chances and army counts, computed on demand instead of loaded from a generated table.
+ *
+ * Results are computed a column at a time (all attackers vs. a fixed number of defenders) by the recursion of
+ * {@link FightLattice}, kept in two rolling rows, so a column of A attackers vs. D defenders takes O(A * D) time and O(A) memory;
+ * values are bit-identical to {@link FightLattice}. Columns are kept in an LRU cache of at most 'capacity' columns keyed by
+ * (die chances, defenders); a query for more attackers than the cached column holds recomputes it at least twice as long.
+ * Columns hold at most {@link #MAX_ARMIES} attackers and defenders, so a column takes at most 64 kB;
+ * fights with more armies on either side use the normal approximation of {@link BandedFightTable} instead.
+ *
+ * Thread-safe: the cache is locked only to look up / store a column, columns are computed outside the lock,
+ * so two threads missing the same column may both compute it (same values, one of them kept).
+ */
+public class FightOracle {
+
+    /**
+     * Columns are never shorter than this.
+     */
+    public static final int MIN_ATTACKERS = 64;
+
+    /**
+     * Fights with more attackers or defenders are not computed but approximated.
+     */
+    public static final int MAX_ARMIES = 2048;
+
+    private final int capacity;
+
+    private final LinkedHashMap<Key, Column> columns;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param capacity max number of columns cached
+     */
+    public FightOracle(int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        columns = new LinkedHashMap<Key, Column>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Column> eldest) {
+                return size() > FightOracle.this.capacity;
+            }
+
+        };
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of columns cached
+     */
+    public int getSize() {
+        synchronized (columns) {
+            return columns.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    // ========
+    // QUERIES
+    // ========
+
+    /**
+     * @param defenderDieChance chance that a defending army is killed in a round
+     * @param attackerDieChance chance that an attacking army is killed in a round
+     */
+    public double getAttackersWinChance(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        if (defenders <= 0) return attackers > 0 ? 1 : 0;
+        if (attackers <= 0) return 0;
+        if (beyond(attackers, defenders)) return BandedFightTable.normalWinChance(defenderDieChance, attackerDieChance, attackers, defenders);
+        return getColumn(defenderDieChance, attackerDieChance, attackers, defenders).attackersWin[attackers];
+    }
+
+    public double getDefendersWinChance(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        if (defenders <= 0) return attackers > 0 ? 0 : 1;
+        if (attackers <= 0) return 1;
+        if (beyond(attackers, defenders)) return 1 - BandedFightTable.normalWinChance(defenderDieChance, attackerDieChance, attackers, defenders);
+        return getColumn(defenderDieChance, attackerDieChance, attackers, defenders).defendersWin[attackers];
+    }
+
+    public double getExpectedAttackersDeaths(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        if (attackers <= 0 || defenders <= 0) return 0;
+        if (beyond(attackers, defenders)) return BandedFightTable.normalAttackersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+        return getColumn(defenderDieChance, attackerDieChance, attackers, defenders).attackersDeaths[attackers];
+    }
+
+    public double getExpectedDefendersDeaths(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        if (attackers <= 0 || defenders <= 0) return 0;
+        if (beyond(attackers, defenders)) return BandedFightTable.normalDefendersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+        return getColumn(defenderDieChance, attackerDieChance, attackers, defenders).defendersDeaths[attackers];
+    }
+
+    /**
+     * @return result of the fight of 'attackers' vs. 'defenders', both at least 1
+     */
+    public FightResult getResult(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        if (attackers < 1 || defenders < 1) {
+            throw new IllegalArgumentException("Fight " + attackers + " vs. " + defenders + " needs at least one army on each side");
+        }
+        FightResult result = new FightResult();
+        if (beyond(attackers, defenders)) {
+            result.attackersWinChance = getAttackersWinChance(defenderDieChance, attackerDieChance, attackers, defenders);
+            result.defendersWinChance = 1 - result.attackersWinChance;
+            result.expectedAttackersDeaths = getExpectedAttackersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+            result.expectedDefendersDeaths = getExpectedDefendersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+            return result;
+        }
+        Column column = getColumn(defenderDieChance, attackerDieChance, attackers, defenders);
+        result.attackersWinChance = column.attackersWin[attackers];
+        result.defendersWinChance = column.defendersWin[attackers];
+        result.expectedAttackersDeaths = column.attackersDeaths[attackers];
+        result.expectedDefendersDeaths = column.defendersDeaths[attackers];
+        return result;
+    }
+
+    /**
+     * @return true if the fight is approximated, see {@link #MAX_ARMIES}
+     */
+    private static boolean beyond(int attackers, int defenders) {
+        return attackers > MAX_ARMIES || defenders > MAX_ARMIES;
+    }
+
+    /**
+     * @return view of the oracle for one pair of die chances, usable wherever a generated table is;
+     *         it stores every fight, 'attackersMax' / 'defendersMax' only bound {@link FightAttackersTable#getMinAttackers(int, double)}
+     */
+    public FightAttackersTable getTable(double defenderDieChance, double attackerDieChance, int attackersMax, int defendersMax) {
+        return new FightAttackersTable() {
+
+            @Override
+            public int getAttackersMax() {
+                return attackersMax;
+            }
+
+            @Override
+            public int getDefendersMax() {
+                return defendersMax;
+            }
+
+            @Override
+            public double getAttackersWinChance(int attackers, int defenders) {
+                return FightOracle.this.getAttackersWinChance(defenderDieChance, attackerDieChance, attackers, defenders);
+            }
+
+            @Override
+            public double getDefendersWinChance(int attackers, int defenders) {
+                return FightOracle.this.getDefendersWinChance(defenderDieChance, attackerDieChance, attackers, defenders);
+            }
+
+            @Override
+            public double getExpectedAttackersDeaths(int attackers, int defenders) {
+                return FightOracle.this.getExpectedAttackersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+            }
+
+            @Override
+            public Double getExpectedDefendersDeaths(int attackers, int defenders) {
+                return FightOracle.this.getExpectedDefendersDeaths(defenderDieChance, attackerDieChance, attackers, defenders);
+            }
+
+            @Override
+            public int getMinAttackers(int defenders, double winChance) {
+                if (defenders < 1) return 1;
+                // the column does not reach that far, search over the approximation as well
+                if (beyond(attackersMax, defenders)) return FightAttackersTable.super.getMinAttackers(defenders, winChance);
+                // one column answers the whole search
+                Column column = getColumn(defenderDieChance, attackerDieChance, attackersMax, defenders);
+                int low = 1, high = attackersMax;
+                if (high < 1 || column.attackersWin[high] < winChance) return Integer.MAX_VALUE;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (column.attackersWin[mid] >= winChance) high = mid;
+                    else low = mid + 1;
+                }
+                return low;
+            }
+
+        };
+    }
+
+    // ========
+    // CACHE
+    // ========
+
+    private static final class Key {
+
+        final double defenderDieChance;
+        final double attackerDieChance;
+        final int defenders;
+
+        Key(double defenderDieChance, double attackerDieChance, int defenders) {
+            this.defenderDieChance = defenderDieChance;
+            this.attackerDieChance = attackerDieChance;
+            this.defenders = defenders;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key)obj;
+            return defenders == other.defenders
+                   && Double.doubleToLongBits(defenderDieChance) == Double.doubleToLongBits(other.defenderDieChance)
+                   && Double.doubleToLongBits(attackerDieChance) == Double.doubleToLongBits(other.attackerDieChance);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Double.hashCode(defenderDieChance);
+            result = 31 * result + Double.hashCode(attackerDieChance);
+            return 31 * result + defenders;
+        }
+
+    }
+
+    /**
+     * attackers (0..length-1) vs. a fixed number of defenders
+     */
+    private static final class Column {
+
+        final double[] attackersWin;
+        final double[] defendersWin;
+        final double[] attackersDeaths;
+        final double[] defendersDeaths;
+
+        Column(int length) {
+            attackersWin = new double[length];
+            defendersWin = new double[length];
+            attackersDeaths = new double[length];
+            defendersDeaths = new double[length];
+        }
+
+    }
+
+    private Column getColumn(double defenderDieChance, double attackerDieChance, int attackers, int defenders) {
+        Key key = new Key(defenderDieChance, attackerDieChance, defenders);
+        Column column;
+        synchronized (columns) {
+            column = columns.get(key);
+        }
+        if (column != null && column.attackersWin.length > attackers) {
+            hits.incrementAndGet();
+            return column;
+        }
+        misses.incrementAndGet();
+        // attackers <= MAX_ARMIES, so neither overflows
+        int length = Math.max(MIN_ATTACKERS, attackers) + 1;
+        if (column != null) length = Math.min(MAX_ARMIES + 1, Math.max(length, 2 * column.attackersWin.length));
+        column = computeColumn(defenderDieChance, attackerDieChance, length, defenders);
+        synchronized (columns) {
+            Column other = columns.get(key);
+            // a concurrent miss may have stored a longer one
+            if (other == null || other.attackersWin.length < column.attackersWin.length) columns.put(key, column);
+        }
+        return column;
+    }
+
+    /**
+     * Recursion of {@link FightLattice} over defenders 0..'defenders', keeping only the previous row.
+     */
+    private static Column computeColumn(double defenderDieChance, double attackerDieChance, int length, int defenders) {
+        double[] transitions = FightUtils.transitions(defenderDieChance, attackerDieChance);
+        double a1d1 = transitions[0];
+        double a1d0 = transitions[1];
+        double a0d1 = transitions[2];
+
+        Column previous = new Column(length);
+        Column current = new Column(length);
+        for (int a = 0; a < length; ++a) {
+            previous.attackersWin[a] = a > 0 ? 1 : 0;
+            previous.defendersWin[a] = a > 0 ? 0 : 1;
+            // defenders get extra army if both armies are wiped out
+            previous.defendersDeaths[a] = a == 0 ? -1 : 0;
+        }
+        for (int d = 1; d <= defenders; ++d) {
+            current.attackersWin[0] = 0;
+            current.defendersWin[0] = 1;
+            current.attackersDeaths[0] = 0;
+            current.defendersDeaths[0] = 0;
+            for (int a = 1; a < length; ++a) {
+                current.attackersWin[a] = a0d1 * previous.attackersWin[a] + a1d0 * current.attackersWin[a-1] + a1d1 * previous.attackersWin[a-1];
+                current.defendersWin[a] = a0d1 * previous.defendersWin[a] + a1d0 * current.defendersWin[a-1] + a1d1 * previous.defendersWin[a-1];
+                current.attackersDeaths[a] = a0d1 * previous.attackersDeaths[a] + a1d0 * (1 + current.attackersDeaths[a-1]) + a1d1 * (1 + previous.attackersDeaths[a-1]);
+                current.defendersDeaths[a] = a0d1 * (1 + previous.defendersDeaths[a]) + a1d0 * current.defendersDeaths[a-1] + a1d1 * (1 + previous.defendersDeaths[a-1]);
+            }
+            Column swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous;
+    }
+
+    /**
+     * Checks the oracle against {@link FightLattice} for two rule variants, from several threads sharing one small cache.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        double[][] variants = { {0.6, 0.7}, {0.5, 0.5} };
+        int max = 150;
+        FightLattice[] lattices = new FightLattice[variants.length];
+        for (int v = 0; v < variants.length; ++v) lattices[v] = new FightLattice(max, max, variants[v][0], variants[v][1]).compute();
+
+        FightOracle oracle = new FightOracle(64);
+        int[] differences = new int[1];
+        Thread[] threads = new Thread[4];
+        long time = System.currentTimeMillis();
+        for (int t = 0; t < threads.length; ++t) {
+            int seed = t;
+            threads[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 20000; ++i) {
+                    int v = random.nextInt(variants.length);
+                    int a = 1 + random.nextInt(max);
+                    int d = 1 + random.nextInt(max);
+                    FightResult mine = oracle.getResult(variants[v][0], variants[v][1], a, d);
+                    FightResult exact = lattices[v].getResult(a, d);
+                    if (mine.attackersWinChance != exact.attackersWinChance || mine.defendersWinChance != exact.defendersWinChance
+                        || mine.expectedAttackersDeaths != exact.expectedAttackersDeaths || mine.expectedDefendersDeaths != exact.expectedDefendersDeaths) {
+                        synchronized (differences) {
+                            ++differences[0];
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        System.out.println("ORACLE: " + (System.currentTimeMillis() - time) + " ms, " + oracle.getHits() + " hits, " + oracle.getMisses() +
+                           " misses, " + oracle.getSize() + " columns cached, " + differences[0] + " results differ from FightLattice");
+
+        FightAttackersTable table = oracle.getTable(0.6, 0.7, 1000, 1000);
+        FightAttackersTable banded = FightTables.getBanded(1000, 1000);
+        System.out.println("MIN ATTACKERS vs. 500 defenders for 70%: oracle " + table.getMinAttackers(500, 0.7) + ", banded " + banded.getMinAttackers(500, 0.7));
+
+        // beyond MAX_ARMIES: approximated, without allocating huge columns
+        System.out.println("BEYOND: 100000000 vs. 5 -> " + oracle.getAttackersWinChance(0.6, 0.7, 100_000_000, 5) +
+                           ", " + Integer.MAX_VALUE + " vs. 5 -> " + oracle.getAttackersWinChance(0.6, 0.7, Integer.MAX_VALUE, 5) +
+                           ", 3000 vs. 3000 -> " + oracle.getAttackersWinChance(0.6, 0.7, 3000, 3000));
+        if (differences[0] > 0) System.exit(1);
+    }
+
+}
@@ -61,7 +61,7 @@ public class FightSimulation {
         
     }
     
-    public static class FightAttackersResults extends FightResults implements Serializable {
+    public static class FightAttackersResults extends FightResults implements FightAttackersTable, Serializable {
         
         /**
          * AUTO-GENERATED 
@@ -155,7 +155,7 @@ public class FightSimulation {
         
     }
     
-    public static class FightDefendersResults extends FightResults implements Serializable {
+    public static class FightDefendersResults extends FightResults implements FightDefendersTable, Serializable {
         
         /**
          * AUTO-GENERATED 
@@ -234,6 +234,11 @@ public class FightSimulation {
     
     public FightResult result;
     
+    /**
+     * Do not print the progress of {@link #compute(double)} and {@link #getResult()}.
+     */
+    public boolean quiet = false;
+    
     private int attackersMax;
     private int defendersMax;
     private double attackerDieChance;
@@ -258,21 +263,10 @@ public class FightSimulation {
         
         states[attackers][defenders] = 1;
         
-        // 0 attackers died, 0 defenders died
-        double a0d0 = (1-defenderDieChance) * (1-attackerDieChance);
-        // 1 attacker died, 1 defender died
-        a1d1 = defenderDieChance * attackerDieChance;
-        // 1 attacker died, 0 defenders died
-        a1d0 = (1-defenderDieChance) * attackerDieChance;
-        // 0 attackers died, 1 defender died
-        a0d1 = defenderDieChance * (1-attackerDieChance);
-        
-        double sum = 1 - a0d0;
-        
-        // DIVIDIND a0d0 BETWEEN OTHER TRANSITIONS
-        a1d1 = a1d1 + a0d0 * (a1d1 / sum);
-        a1d0 = a1d0 + a0d0 * (a1d0 / sum);
-        a0d1 = a0d1 + a0d0 * (a0d1 / sum);
+        double[] transitions = FightUtils.transitions(defenderDieChance, attackerDieChance);
+        a1d1 = transitions[0];
+        a1d0 = transitions[1];
+        a0d1 = transitions[2];
     }
     
     public int getAttackers() {
@@ -298,16 +292,18 @@ public class FightSimulation {
     public FightSimulation compute(double attackersVictoryChanceTrim) {
         int target = Math.max(attackersMax, defendersMax);
         
-        System.out.println("COMPUTING FIGHT MATRIX A:" + attackersMax + " vs. D:" + defendersMax);
-        System.out.println("Attacker die chance -> " + attackerDieChance);
-        System.out.println("Defender die chance -> " + defenderDieChance);
-        System.out.println("A1D1 -> " + FightUtils.formatterChance.format(a1d1));
-        System.out.println("A1D0 -> " + FightUtils.formatterChance.format(a1d0));
-        System.out.println("A0D1 -> " + FightUtils.formatterChance.format(a0d1));
-        System.out.println("SUM  -> " + FightUtils.formatterChance.format(a1d1 + a1d0 + a0d1));
+        if (!quiet) {
+            System.out.println("COMPUTING FIGHT MATRIX A:" + attackersMax + " vs. D:" + defendersMax);
+            System.out.println("Attacker die chance -> " + attackerDieChance);
+            System.out.println("Defender die chance -> " + defenderDieChance);
+            System.out.println("A1D1 -> " + FightUtils.formatterChance.format(a1d1));
+            System.out.println("A1D0 -> " + FightUtils.formatterChance.format(a1d0));
+            System.out.println("A0D1 -> " + FightUtils.formatterChance.format(a0d1));
+            System.out.println("SUM  -> " + FightUtils.formatterChance.format(a1d1 + a1d0 + a0d1));
+        }
         long time = System.currentTimeMillis();                
         
-        System.out.println("FIRST HALF");
+        if (!quiet) System.out.println("FIRST HALF");
         for (int i = 0; i < target; ++i) {
             for (int j = 0; j < target; ++j) {
                 int attackers = attackersMax - i + j;
@@ -322,7 +318,7 @@ public class FightSimulation {
             }
         }
         
-        System.out.println("SECOND HALF");
+        if (!quiet) System.out.println("SECOND HALF");
         for (int i = 0; i < target; ++i) {
             for (int j = 0; j < target; ++j) {
                 int attackers = 1 + j;
@@ -335,14 +331,14 @@ public class FightSimulation {
             }
         }
         
-        System.out.println("FINISHED in " + (System.currentTimeMillis()-time) + " ms");
+        if (!quiet) System.out.println("FINISHED in " + (System.currentTimeMillis()-time) + " ms");
         
         return this;
     }
     
     public FightResult getResult() {
         
-        System.out.println("READING PROBABILITIES");
+        if (!quiet) System.out.println("READING PROBABILITIES");
         
         FightResult result = new FightResult();
         
@@ -383,14 +379,34 @@ public class FightSimulation {
         result.expectedAttackersDeaths = expectedAttackersDeaths;
         result.expectedDefendersDeaths = expectedDefendersDeaths;
         
-        result.println();
-        System.out.println("CONTROL SUM -> " + FightUtils.formatterChance.format(sum));
+        if (!quiet) {
+            result.println();
+            System.out.println("CONTROL SUM -> " + FightUtils.formatterChance.format(sum));
+        }
         
         this.result = result;
         
         return result;
     }
     
+    /**
+     * Reads the full outcome distribution out of the computed states; outcomes at both ends with chance not above 'trim' are not stored.
+     */
+    public FightDistribution getDistribution(double trim) {
+        double[] outcomes = new double[attackersMax + defendersMax];
+        for (int i = 1; i <= attackersMax; ++i) {
+            // attackers win losing attackersMax - i
+            outcomes[attackersMax - i] = states[i][0];
+        }
+        for (int i = 1; i <= defendersMax; ++i) {
+            // defenders win losing defendersMax - i
+            outcomes[attackersMax + defendersMax - i] = states[0][i];
+        }
+        // defenders get extra army if both armies are wiped out
+        outcomes[attackersMax + defendersMax - 1] += states[0][0];
+        return new FightDistribution(attackersMax, defendersMax, outcomes, trim);
+    }
+
     private void updateState(int attackers, int defenders) {
         double state = states[attackers][defenders];
         
@@ -418,48 +434,68 @@ public class FightSimulation {
         // ATTACKERS
         FightAttackersResults attackersResults = new FightAttackersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance, computationAttackersWinChanceTrim, attackersWinChanceTrim);
         for (int defenders = 1; defenders <= defendersMax; ++defenders) {
-            for (int attackers = attackersMax; attackers > 0; --attackers) {            
-                FightSimulation simulator = new FightSimulation(attackers, defenders, defenderDieChance, attackerDieChance);
-                simulator.compute(computationAttackersWinChanceTrim);
-                FightResult result = simulator.getResult();
-                if (result.attackersWinChance < attackersWinChanceTrim) {
-                    // TOO SMALL CHANCE FOR VICTORY!
-                    attackersResults.results[attackers][defenders] = null;
-                    // having fewer attackers won't help us
-                    // => continue with another number of defenders
-                    break;
-                } else {
-                    attackersResults.results[attackers][defenders] = result;
-                }
-            }
+            GenerateFightAttackersColumn(attackersResults, defenders, defenderDieChance, attackerDieChance, false);
         }
         System.out.println("SAVING FILE: " + attackersFile.getAbsolutePath());
         attackersResults.saveToFile(attackersFile);
+        MappedFightResults.saveToFile(attackersResults, MappedFightResults.binFile(attackersFile.getPath()));
         
         // DEFENDERS
         FightDefendersResults defendersResults = new FightDefendersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance, computationAttackersWinChanceTrim, defendersWinChanceTrim);
         for (int attackers = 1; attackers <= attackersMax; ++attackers) {
-            for (int defenders = defendersMax; defenders > 0; --defenders) {                        
-                FightSimulation simulator = new FightSimulation(attackers, defenders, defenderDieChance, attackerDieChance);
-                simulator.compute(computationAttackersWinChanceTrim);
-                FightResult result = simulator.getResult();
-                if (result.defendersWinChance < defendersWinChanceTrim) {
-                    // TOO SMALL CHANCE FOR DEFENDERS VICTORY!
-                    defendersResults.results[attackers][defenders] = null;
-                    // having fewer defenders won't help us
-                    // => continue with another number of attackers
-                    break;
-                } else {
-                    defendersResults.results[attackers][defenders] = result;
-                }
-            }
+            GenerateFightDefendersRow(defendersResults, attackers, defenderDieChance, attackerDieChance, false);
         }
         System.out.println("SAVING FILE: " + defendersFile.getAbsolutePath());
         defendersResults.saveToFile(defendersFile);
+        MappedFightResults.saveToFile(defendersResults, MappedFightResults.binFile(defendersFile.getPath()));
         
         System.out.println("---// DONE //---");
     }
     
+    /**
+     * Fills results[*][defenders] of 'attackersResults', from the most attackers down until the attackers win chance drops
+     * below {@link FightAttackersResults#attackersWinChanceTrim}; touches no other cell.
+     */
+    public static void GenerateFightAttackersColumn(FightAttackersResults attackersResults, int defenders, double defenderDieChance, double attackerDieChance, boolean quiet) {
+        for (int attackers = attackersResults.getAttackersMax(); attackers > 0; --attackers) {            
+            FightSimulation simulator = new FightSimulation(attackers, defenders, defenderDieChance, attackerDieChance);
+            simulator.quiet = quiet;
+            simulator.compute(attackersResults.computationAttackersWinChanceTrim);
+            FightResult result = simulator.getResult();
+            if (result.attackersWinChance < attackersResults.attackersWinChanceTrim) {
+                // TOO SMALL CHANCE FOR VICTORY!
+                attackersResults.results[attackers][defenders] = null;
+                // having fewer attackers won't help us
+                // => continue with another number of defenders
+                break;
+            } else {
+                attackersResults.results[attackers][defenders] = result;
+            }
+        }
+    }
+    
+    /**
+     * Fills results[attackers][*] of 'defendersResults', from the most defenders down until the defenders win chance drops
+     * below {@link FightDefendersResults#defendersWinChanceTrim}; touches no other cell.
+     */
+    public static void GenerateFightDefendersRow(FightDefendersResults defendersResults, int attackers, double defenderDieChance, double attackerDieChance, boolean quiet) {
+        for (int defenders = defendersResults.getDefendersMax(); defenders > 0; --defenders) {                        
+            FightSimulation simulator = new FightSimulation(attackers, defenders, defenderDieChance, attackerDieChance);
+            simulator.quiet = quiet;
+            simulator.compute(defendersResults.computationAttackersWinChanceTrim);
+            FightResult result = simulator.getResult();
+            if (result.defendersWinChance < defendersResults.defendersWinChanceTrim) {
+                // TOO SMALL CHANCE FOR DEFENDERS VICTORY!
+                defendersResults.results[attackers][defenders] = null;
+                // having fewer defenders won't help us
+                // => continue with another number of attackers
+                break;
+            } else {
+                defendersResults.results[attackers][defenders] = result;
+            }
+        }
+    }
+    
     public static void GenerateFightDefendersResults(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double computationAttackersWinChanceTrim, double winChanceTrim, File file) {
         
         System.out.println("---// DONE //---");
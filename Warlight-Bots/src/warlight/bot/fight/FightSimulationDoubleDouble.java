@@ -0,0 +1,409 @@
+package warlight.bot.fight;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import warlight.bot.fight.FightSimulationExact.FightExactResult;
+import warlight.bot.fight.FightSimulationExact.FightExactResults;
+
+/**
+ * Fast replacement of {@link FightSimulationExact}: the same fight matrix computed in double-double arithmetic
+ * (a value is an unevaluated sum hi + lo of two doubles, about 106 bits of mantissa, products made exact by Math.fma),
+ * giving the same {@link FightExactResult}s, to ~1e-21 (the BigDecimal path rounds its transitions to 20 digits),
+ * in microseconds instead of growing BigDecimals.
+ *
+ * State (a, d) = armies still alive; its chance is pulled from the states one round before:
+ *   P(a, d) = P(a+1, d) * a1d0 + P(a, d+1) * a0d1 + P(a+1, d+1) * a1d1      (only fighting states, a, d >= 1, pass it on)
+ * States on one anti-diagonal (attackers + defenders lost = const.) depend only on the two previous ones, so each
+ * anti-diagonal is split among the threads of {@link #pool} once it is long enough.
+ *
+ * Compare with {@link FightSimulationExact} by {@link #main(String[])}.
+ */
+public class FightSimulationDoubleDouble {
+
+    /**
+     * Anti-diagonals shorter than twice this are computed by the calling thread.
+     */
+    public static final int GRAIN = 512;
+
+    /**
+     * Null => single-threaded.
+     */
+    public ForkJoinPool pool = null;
+
+    /**
+     * Do not print the progress of {@link #compute()} and {@link #getResult()}.
+     */
+    public boolean quiet = false;
+
+    public FightExactResult result;
+
+    private int attackersMax;
+    private int defendersMax;
+    private double attackerDieChance;
+    private double defenderDieChance;
+
+    // transitions as (hi, lo)
+    private final double a1d1, a1d1Lo;
+    private final double a1d0, a1d0Lo;
+    private final double a0d1, a0d1Lo;
+
+    /**
+     * a * (defendersMax + 1) + d -> chance of the state (hi, lo)
+     */
+    private final double[] statesHi;
+    private final double[] statesLo;
+
+    public FightSimulationDoubleDouble(int attackers, int defenders, double defenderDieChance, double attackerDieChance) {
+        this.attackersMax = attackers;
+        this.defendersMax = defenders;
+        this.attackerDieChance = defenderDieChance;
+        this.defenderDieChance = attackerDieChance;
+
+        statesHi = new double[(attackers + 1) * (defenders + 1)];
+        statesLo = new double[(attackers + 1) * (defenders + 1)];
+        statesHi[index(attackers, defenders)] = 1;
+
+        // SAME TRANSITIONS AS FightSimulationExact: products rounded to doubles, the rest exact (to double-double)
+        double a0d0 = (1-defenderDieChance) * (1-attackerDieChance);
+        double a1d1 = defenderDieChance * attackerDieChance;
+        double a1d0 = (1-defenderDieChance) * attackerDieChance;
+        double a0d1 = defenderDieChance * (1-attackerDieChance);
+
+        DD sum = new DD();
+        sum.set(1, 0);
+        sum.add(-a0d0, 0);
+
+        // DIVIDIND a0d0 BETWEEN OTHER TRANSITIONS
+        DD t = transition(a1d1, a0d0, sum);
+        this.a1d1 = t.hi;
+        this.a1d1Lo = t.lo;
+        t = transition(a1d0, a0d0, sum);
+        this.a1d0 = t.hi;
+        this.a1d0Lo = t.lo;
+        t = transition(a0d1, a0d0, sum);
+        this.a0d1 = t.hi;
+        this.a0d1Lo = t.lo;
+    }
+
+    /**
+     * @return x + a0d0 * (x / sum)
+     */
+    private static DD transition(double x, double a0d0, DD sum) {
+        DD share = new DD();
+        share.set(x, 0);
+        share.divide(sum.hi, sum.lo);
+        DD result = new DD();
+        result.set(x, 0);
+        result.addProduct(a0d0, 0, share.hi, share.lo);
+        return result;
+    }
+
+    private int index(int attackers, int defenders) {
+        return attackers * (defendersMax + 1) + defenders;
+    }
+
+    public int getAttackers() {
+        return attackersMax;
+    }
+
+    public int getDefenders() {
+        return defendersMax;
+    }
+
+    public double getAttackerDieChance() {
+        return attackerDieChance;
+    }
+
+    public double getDefenderDieChance() {
+        return defenderDieChance;
+    }
+
+    public FightSimulationDoubleDouble compute() {
+        if (!quiet) System.out.println("COMPUTING FIGHT MATRIX A:" + attackersMax + " vs. D:" + defendersMax + " (double-double)");
+        long time = System.currentTimeMillis();
+
+        DD state = new DD();
+        for (int lost = 1; lost <= attackersMax + defendersMax; ++lost) {
+            // attackers lost 'i', defenders lost 'lost - i'
+            int from = Math.max(0, lost - defendersMax);
+            int to = Math.min(attackersMax, lost) + 1;
+            if (pool != null && to - from >= 2 * GRAIN) {
+                pool.invoke(new DiagonalTask(lost, from, to));
+            } else {
+                computeDiagonal(lost, from, to, state);
+            }
+        }
+
+        if (!quiet) System.out.println("FINISHED in " + (System.currentTimeMillis()-time) + " ms");
+
+        return this;
+    }
+
+    private void computeDiagonal(int lost, int from, int to, DD state) {
+        for (int i = from; i < to; ++i) {
+            int attackers = attackersMax - i;
+            int defenders = defendersMax - (lost - i);
+            state.set(0, 0);
+            if (attackers < attackersMax && defenders >= 1) {
+                int source = index(attackers + 1, defenders);
+                state.addProduct(statesHi[source], statesLo[source], a1d0, a1d0Lo);
+            }
+            if (defenders < defendersMax && attackers >= 1) {
+                int source = index(attackers, defenders + 1);
+                state.addProduct(statesHi[source], statesLo[source], a0d1, a0d1Lo);
+            }
+            if (attackers < attackersMax && defenders < defendersMax) {
+                int source = index(attackers + 1, defenders + 1);
+                state.addProduct(statesHi[source], statesLo[source], a1d1, a1d1Lo);
+            }
+            int target = index(attackers, defenders);
+            statesHi[target] = state.hi;
+            statesLo[target] = state.lo;
+        }
+    }
+
+    /**
+     * Part [from, to) of one anti-diagonal, halved down to {@link FightSimulationDoubleDouble#GRAIN} states.
+     */
+    private class DiagonalTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int lost, from, to;
+
+        DiagonalTask(int lost, int from, int to) {
+            this.lost = lost;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from < 2 * GRAIN) {
+                computeDiagonal(lost, from, to, new DD());
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DiagonalTask(lost, from, mid), new DiagonalTask(lost, mid, to));
+        }
+
+    }
+
+    /**
+     * @return chance of the state exactly as BigDecimal
+     */
+    public BigDecimal getState(int attackers, int defenders) {
+        int i = index(attackers, defenders);
+        return new BigDecimal(statesHi[i]).add(new BigDecimal(statesLo[i]));
+    }
+
+    /**
+     * Same as {@link FightSimulationExact#getResult()}.
+     */
+    public FightExactResult getResult() {
+        FightExactResult result = new FightExactResult();
+        result.attackers = attackersMax;
+        result.defenders = defendersMax;
+        result.attackersWinChances = new BigDecimal[result.attackers+1];
+        result.defendersWinChances = new BigDecimal[result.defenders+1];
+
+        BigDecimal sum = new BigDecimal(0);
+
+        BigDecimal winSum = new BigDecimal(0);
+        BigDecimal loseSum = new BigDecimal(0);
+
+        BigDecimal expectedAttackersDeaths = new BigDecimal(0);
+        BigDecimal expectedDefendersDeaths = new BigDecimal(0);
+
+        for (int i = 1; i <= attackersMax; ++i) {
+            BigDecimal probability = getState(i, 0);
+            sum = sum.add(probability);
+            winSum = winSum.add(probability);
+
+            expectedAttackersDeaths = expectedAttackersDeaths.add(probability.multiply(new BigDecimal(attackersMax - i)));
+            expectedDefendersDeaths = expectedDefendersDeaths.add(probability.multiply(new BigDecimal(defendersMax)));
+
+            result.attackersWinChances[i] = probability;
+        }
+
+        for (int i = 0; i <= defendersMax; ++i) {
+            BigDecimal probability = getState(0, i);
+            sum = sum.add(probability);
+            loseSum = loseSum.add(probability);
+
+            expectedAttackersDeaths = expectedAttackersDeaths.add(probability.multiply(new BigDecimal(attackersMax)));
+            expectedDefendersDeaths = expectedDefendersDeaths.add(probability.multiply(new BigDecimal(defendersMax - i)));
+
+            result.defendersWinChances[i] = probability;
+        }
+
+        result.attackersWinChance = winSum.doubleValue();
+        result.defendersWinChance = loseSum.doubleValue();
+        result.expectedAttackersDeaths = expectedAttackersDeaths.doubleValue();
+        result.expectedDefendersDeaths = expectedDefendersDeaths.doubleValue();
+
+        if (!quiet) {
+            result.println();
+            System.out.println("CONTROL SUM -> " + FightUtils.formatterChance.format(sum));
+        }
+
+        this.result = result;
+
+        return result;
+    }
+
+    /**
+     * Same as {@link FightSimulationExact#GenerateFightResults(int, int, double, double, File)}, each fight in double-double.
+     */
+    public static void GenerateFightResults(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, File file) {
+        long time = System.currentTimeMillis();
+        FightExactResults results = new FightExactResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance);
+        for (int attackers = 1; attackers <= attackersMax; ++attackers) {
+            for (int defenders = 1; defenders <= defendersMax; ++defenders) {
+                FightSimulationDoubleDouble simulator = new FightSimulationDoubleDouble(attackers, defenders, defenderDieChance, attackerDieChance);
+                simulator.quiet = true;
+                results.results[attackers][defenders] = simulator.compute().getResult();
+            }
+        }
+        System.out.println("COMPUTED A:" + attackersMax + " vs. D:" + defendersMax + " in " + (System.currentTimeMillis() - time) + " ms");
+        System.out.println("SAVING FILE: " + file.getAbsolutePath());
+        results.saveToFile(file);
+        System.out.println("---// DONE //---");
+    }
+
+    // ========
+    // DOUBLE-DOUBLE
+    // ========
+
+    /**
+     * Mutable double-double accumulator (Dekker / Knuth error-free transformations); one per thread.
+     */
+    private static final class DD {
+
+        double hi, lo;
+
+        void set(double hi, double lo) {
+            this.hi = hi;
+            this.lo = lo;
+        }
+
+        /**
+         * this += (xHi, xLo)
+         */
+        void add(double xHi, double xLo) {
+            double s = hi + xHi;
+            double v = s - hi;
+            double e = (hi - (s - v)) + (xHi - v);  // two-sum: s + e == hi + xHi exactly
+            e += lo + xLo;
+            hi = s + e;
+            lo = e - (hi - s);
+        }
+
+        /**
+         * this += (xHi, xLo) * (yHi, yLo)
+         */
+        void addProduct(double xHi, double xLo, double yHi, double yLo) {
+            double p = xHi * yHi;
+            double e = Math.fma(xHi, yHi, -p);      // two-prod: p + e == xHi * yHi exactly
+            e += xHi * yLo + xLo * yHi;
+            double pHi = p + e;
+            add(pHi, e - (pHi - p));
+        }
+
+        /**
+         * this /= (yHi, yLo)
+         */
+        void divide(double yHi, double yLo) {
+            double q1 = hi / yHi;
+            // remainder this - q1 * y
+            DD remainder = new DD();
+            remainder.set(hi, lo);
+            remainder.addProduct(-q1, 0, yHi, yLo);
+            double q2 = remainder.hi / yHi;
+            hi = q1 + q2;
+            lo = q2 - (hi - q1);
+        }
+
+    }
+
+    // ========
+    // HARNESS
+    // ========
+
+    /**
+     * Reports the maximum error against {@link FightSimulationExact} (and of the double {@link FightSimulation} for scale)
+     * and times the double-double engine on large fights, single-threaded and on all cores.
+     */
+    public static void main(String[] args) {
+        int[][] fights = { {1, 1}, {3, 2}, {10, 8}, {8, 10}, {20, 20}, {30, 25}, {25, 40} };
+        for (int[] fight : fights) {
+            int a = fight[0], d = fight[1];
+
+            long time = System.currentTimeMillis();
+            FightSimulationExact exact = new FightSimulationExact(a, d, 0.6, 0.7);
+            exact.quiet = true;
+            FightExactResult reference = exact.compute().getResult();
+            long exactTime = System.currentTimeMillis() - time;
+
+            time = System.nanoTime();
+            FightSimulationDoubleDouble fast = new FightSimulationDoubleDouble(a, d, 0.6, 0.7);
+            fast.quiet = true;
+            FightExactResult mine = fast.compute().getResult();
+            long fastTime = (System.nanoTime() - time) / 1000;
+
+            FightSimulation simulation = new FightSimulation(a, d, 0.6, 0.7);
+            simulation.quiet = true;
+            simulation.compute(0);
+
+            double error = 0, relativeError = 0, doubleError = 0;
+            for (int i = 1; i <= a; ++i) {
+                BigDecimal difference = mine.attackersWinChances[i].subtract(reference.attackersWinChances[i]).abs();
+                error = Math.max(error, difference.doubleValue());
+                relativeError = Math.max(relativeError, relative(difference, reference.attackersWinChances[i]));
+                doubleError = Math.max(doubleError, new BigDecimal(simulation.states[i][0]).subtract(reference.attackersWinChances[i]).abs().doubleValue());
+            }
+            for (int i = 0; i <= d; ++i) {
+                BigDecimal difference = mine.defendersWinChances[i].subtract(reference.defendersWinChances[i]).abs();
+                error = Math.max(error, difference.doubleValue());
+                relativeError = Math.max(relativeError, relative(difference, reference.defendersWinChances[i]));
+                doubleError = Math.max(doubleError, new BigDecimal(simulation.states[0][i]).subtract(reference.defendersWinChances[i]).abs().doubleValue());
+            }
+            System.out.println(String.format("A%d vs. D%d: BigDecimal %d ms, double-double %d us, max error %.2e (relative %.2e), double max error %.2e",
+                                             a, d, exactTime, fastTime, error, relativeError, doubleError));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            for (int size : new int[] { 1000, 4000 }) {
+                long time = System.currentTimeMillis();
+                FightSimulationDoubleDouble sequential = new FightSimulationDoubleDouble(size, size, 0.6, 0.7);
+                sequential.quiet = true;
+                sequential.compute();
+                long sequentialTime = System.currentTimeMillis() - time;
+
+                time = System.currentTimeMillis();
+                FightSimulationDoubleDouble parallel = new FightSimulationDoubleDouble(size, size, 0.6, 0.7);
+                parallel.quiet = true;
+                parallel.pool = pool;
+                parallel.compute();
+                long parallelTime = System.currentTimeMillis() - time;
+
+                boolean same = Arrays.equals(sequential.statesHi, parallel.statesHi) && Arrays.equals(sequential.statesLo, parallel.statesLo);
+                System.out.println("A" + size + " vs. D" + size + ": sequential " + sequentialTime + " ms, parallel (" + pool.getParallelism() + " threads) " +
+                                   parallelTime + " ms, " + (same ? "bit-identical" : "DIFFERENT"));
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static double relative(BigDecimal difference, BigDecimal value) {
+        if (value.signum() == 0) return difference.signum() == 0 ? 0 : Double.POSITIVE_INFINITY;
+        return difference.doubleValue() / value.doubleValue();
+    }
+
+}
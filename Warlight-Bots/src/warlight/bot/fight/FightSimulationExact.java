@@ -131,6 +131,11 @@ public class FightSimulationExact {
     
     public FightExactResult result;
     
+    /**
+     * Do not print the progress of {@link #compute()} and {@link #getResult()}.
+     */
+    public boolean quiet = false;
+    
     private int attackersMax;
     private int defendersMax;
     private double attackerDieChance;
@@ -191,16 +196,18 @@ public class FightSimulationExact {
     public FightSimulationExact compute() {
         int target = Math.max(attackersMax, defendersMax);
         
-        System.out.println("COMPUTING FIGHT MATRIX A:" + attackersMax + " vs. D:" + defendersMax);
-        System.out.println("Attacker die chance -> " + attackerDieChance);
-        System.out.println("Defender die chance -> " + defenderDieChance);
-        System.out.println("A1D1 -> " + FightUtils.formatterChance.format(a1d1));
-        System.out.println("A1D0 -> " + FightUtils.formatterChance.format(a1d0));
-        System.out.println("A0D1 -> " + FightUtils.formatterChance.format(a0d1));
-        System.out.println("SUM  -> " + FightUtils.formatterChance.format((a1d1.add(a1d0).add(a0d1))));
+        if (!quiet) {
+            System.out.println("COMPUTING FIGHT MATRIX A:" + attackersMax + " vs. D:" + defendersMax);
+            System.out.println("Attacker die chance -> " + attackerDieChance);
+            System.out.println("Defender die chance -> " + defenderDieChance);
+            System.out.println("A1D1 -> " + FightUtils.formatterChance.format(a1d1));
+            System.out.println("A1D0 -> " + FightUtils.formatterChance.format(a1d0));
+            System.out.println("A0D1 -> " + FightUtils.formatterChance.format(a0d1));
+            System.out.println("SUM  -> " + FightUtils.formatterChance.format((a1d1.add(a1d0).add(a0d1))));
+        }
         long time = System.currentTimeMillis();                
         
-        System.out.println("FIRST HALF");
+        if (!quiet) System.out.println("FIRST HALF");
         for (int i = 0; i < target; ++i) {
             for (int j = 0; j < target; ++j) {
                 int attackers = attackersMax - i + j;
@@ -213,7 +220,7 @@ public class FightSimulationExact {
             }
         }
         
-        System.out.println("SECOND HALF");
+        if (!quiet) System.out.println("SECOND HALF");
         for (int i = 0; i < target; ++i) {
             for (int j = 0; j < target; ++j) {
                 int attackers = 1 + j;
@@ -226,14 +233,14 @@ public class FightSimulationExact {
             }
         }
         
-        System.out.println("FINISHED in " + (System.currentTimeMillis()-time) + " ms");
+        if (!quiet) System.out.println("FINISHED in " + (System.currentTimeMillis()-time) + " ms");
         
         return this;
     }
     
     public FightExactResult getResult() {
         
-        System.out.println("READING PROBABILITIES");
+        if (!quiet) System.out.println("READING PROBABILITIES");
         
         FightExactResult result = new FightExactResult();
         result.attackers = attackersMax;
@@ -250,7 +257,7 @@ public class FightSimulationExact {
         BigDecimal expectedDefendersDeaths = new BigDecimal(0);
         
         for (int i = 1; i <= attackersMax; ++i) {
-            System.out.println("WIN  ["+i+"][0] -> " + FightUtils.formatterChance.format(states[i][0].probability));
+            if (!quiet) System.out.println("WIN  ["+i+"][0] -> " + FightUtils.formatterChance.format(states[i][0].probability));
             sum = sum.add(states[i][0].probability);
             winSum = winSum.add(states[i][0].probability);
             
@@ -264,7 +271,7 @@ public class FightSimulationExact {
         }
         
         for (int i = 0; i <= defendersMax; ++i) {
-            System.out.println("LOSE [0]["+i+"] -> " + FightUtils.formatterChance.format(states[0][i].probability));
+            if (!quiet) System.out.println("LOSE [0]["+i+"] -> " + FightUtils.formatterChance.format(states[0][i].probability));
             sum = sum.add(states[0][i].probability);
             loseSum = loseSum.add(states[0][i].probability);
             
@@ -282,8 +289,10 @@ public class FightSimulationExact {
         result.expectedAttackersDeaths = expectedAttackersDeaths.doubleValue();
         result.expectedDefendersDeaths = expectedDefendersDeaths.doubleValue();
         
-        result.println();
-        System.out.println("CONTROL SUM -> " + FightUtils.formatterChance.format(sum));
+        if (!quiet) {
+            result.println();
+            System.out.println("CONTROL SUM -> " + FightUtils.formatterChance.format(sum));
+        }
         
         this.result = result;
         
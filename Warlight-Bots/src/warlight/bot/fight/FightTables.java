@@ -0,0 +1,135 @@
+package warlight.bot.fight;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import warlight.bot.fight.FightSimulation.FightAttackersResults;
+import warlight.bot.fight.FightSimulation.FightDefendersResults;
+import warlight.utils.Util;
+
+/**
+ * JVM-wide registry of fight tables: every table is loaded once, on first use, and the same instance is handed
+ * to every bot asking for it, so that many internal bots in one JVM do not hold a copy each.
+ * Thread-safe. The tables must be treated as read-only.
+ *
+ * Absolute paths are taken as given, relative ones are found by {@link Util#findFile(String)};
+ * '.bin' files are {@link MappedFightResults mapped}, other files (.obj) deserialized.
+ */
+public class FightTables {
+
+    public static final int DEFAULT_ATTACKERS_MAX = 200;
+    public static final int DEFAULT_DEFENDERS_MAX = 200;
+
+    /**
+     * Columns cached by {@link #getOracle()}.
+     */
+    public static final int DEFAULT_ORACLE_CAPACITY = 1024;
+
+    private static volatile FightOracle oracle;
+
+    private static final ConcurrentHashMap<String, Object> tables = new ConcurrentHashMap<String, Object>();
+
+    /**
+     * @return path of the generated table, as named by {@link FightSimulation#main(String[])}
+     */
+    public static String getPath(boolean attackers, int attackersMax, int defendersMax) {
+        return "Warlight-Bots/FightSimulation-" + (attackers ? "Attackers" : "Defenders") +
+               "-A" + attackersMax + "-D" + defendersMax + ".bin";
+    }
+
+    public static FightAttackersTable getAttackers() {
+        return getAttackers(DEFAULT_ATTACKERS_MAX, DEFAULT_DEFENDERS_MAX);
+    }
+
+    public static FightDefendersTable getDefenders() {
+        return getDefenders(DEFAULT_ATTACKERS_MAX, DEFAULT_DEFENDERS_MAX);
+    }
+
+    public static FightAttackersTable getAttackers(int attackersMax, int defendersMax) {
+        return getAttackers(getPath(true, attackersMax, defendersMax));
+    }
+
+    public static FightDefendersTable getDefenders(int attackersMax, int defendersMax) {
+        return getDefenders(getPath(false, attackersMax, defendersMax));
+    }
+
+    public static FightAttackersTable getAttackers(String path) {
+        return (FightAttackersTable)get(findFile(path), true);
+    }
+
+    public static FightDefendersTable getDefenders(String path) {
+        return (FightDefendersTable)get(findFile(path), false);
+    }
+
+    /**
+     * @return {@link BandedFightTable} of the standard fight (60% / 70% kill chances), computed on first use
+     */
+    public static BandedFightTable getBanded(int attackersMax, int defendersMax) {
+        String key = "B:" + attackersMax + "x" + defendersMax;
+        return (BandedFightTable)tables.computeIfAbsent(key, k -> new BandedFightTable(attackersMax, defendersMax,
+                                                                                        Fight.ATTACKERS_CHANCE_TO_KILL,
+                                                                                        Fight.DEFENDERS_CHANCE_TO_KILL));
+    }
+
+    /**
+     * @return {@link FightOracle} shared by the whole JVM, for fights whose die chances have no generated table
+     */
+    public static FightOracle getOracle() {
+        FightOracle result = oracle;
+        if (result != null) return result;
+        synchronized (FightTables.class) {
+            if (oracle == null) oracle = new FightOracle(DEFAULT_ORACLE_CAPACITY);
+            return oracle;
+        }
+    }
+
+    private static File findFile(String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) return Util.findFile(path);
+        if (!file.exists()) throw new RuntimeException("can't find file: " + path);
+        return file;
+    }
+
+    private static Object get(File file, boolean attackers) {
+        String key;
+        try {
+            key = (attackers ? "A:" : "D:") + file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to resolve fight table: " + file.getAbsolutePath(), e);
+        }
+        Object result = tables.get(key);
+        if (result != null) return result;
+        // loading inside computeIfAbsent makes concurrent first users wait for the single load
+        return tables.computeIfAbsent(key, k -> load(file, attackers));
+    }
+
+    private static Object load(File file, boolean attackers) {
+        if (file.getName().endsWith(".bin")) {
+            return attackers ? new MappedFightResults.Attackers(file) : new MappedFightResults.Defenders(file);
+        }
+        return attackers ? FightAttackersResults.loadFromFile(file) : FightDefendersResults.loadFromFile(file);
+    }
+
+    /**
+     * Loads the default tables and pages them into memory; call it at tournament start so that the first game
+     * does not pay for it.
+     */
+    public static void prewarm() {
+        prewarm(getAttackers());
+        prewarm(getDefenders());
+    }
+
+    /**
+     * Loads the tables at 'attackersPaths' and 'defendersPaths' and pages them into memory.
+     */
+    public static void prewarm(String[] attackersPaths, String[] defendersPaths) {
+        for (String path : attackersPaths) prewarm(getAttackers(path));
+        for (String path : defendersPaths) prewarm(getDefenders(path));
+    }
+
+    private static void prewarm(Object table) {
+        if (table instanceof MappedFightResults) ((MappedFightResults)table).load();
+    }
+
+}
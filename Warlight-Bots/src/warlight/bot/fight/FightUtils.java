@@ -8,5 +8,32 @@ public class FightUtils {
     public static final NumberFormat formatterChance = new DecimalFormat("#0.000000");
     public static final NumberFormat formatterNumber = new DecimalFormat("#000.000000");
     
+    /**
+     * Chances of the outcomes of one fight round, used by every fight computation. A round in which nobody dies (a0d0)
+     * is repeated, so its chance is divided between the other outcomes in proportion to them.
+     * @param defenderDieChance chance that a defending army is killed in a round
+     * @param attackerDieChance chance that an attacking army is killed in a round
+     * @return { a1d1, a1d0, a0d1 }: chance that both / only the attacker / only the defender die(s) in a round
+     */
+    static double[] transitions(double defenderDieChance, double attackerDieChance) {
+        // 0 attackers died, 0 defenders died
+        double a0d0 = (1-defenderDieChance) * (1-attackerDieChance);
+        // 1 attacker died, 1 defender died
+        double a1d1 = defenderDieChance * attackerDieChance;
+        // 1 attacker died, 0 defenders died
+        double a1d0 = (1-defenderDieChance) * attackerDieChance;
+        // 0 attackers died, 1 defender died
+        double a0d1 = defenderDieChance * (1-attackerDieChance);
+        
+        double sum = 1 - a0d0;
+        
+        // DIVIDIND a0d0 BETWEEN OTHER TRANSITIONS
+        return new double[] {
+            a1d1 + a0d0 * (a1d1 / sum),
+            a1d0 + a0d0 * (a1d0 / sum),
+            a0d1 + a0d0 * (a0d1 / sum)
+        };
+    }
+    
 }
 
@@ -0,0 +1,365 @@
+package warlight.bot.fight;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import warlight.bot.fight.FightSimulation.FightAttackersResults;
+import warlight.bot.fight.FightSimulation.FightDefendersResults;
+import warlight.bot.fight.FightSimulation.FightResults;
+
+/**
+ * Fight results read straight from a memory-mapped binary file instead of deserializing the {@link FightResults}
+ * object graph: mapping takes no time and almost no heap, and all processes mapping the same file share its pages
+ * through the page cache. Instances are immutable and thread-safe.
+ *
+ * FILE LAYOUT (little-endian):
+ *   0  int    {@link #MAGIC}
+ *   4  int    {@link #VERSION}
+ *   8  int    kind, {@link #KIND_ATTACKERS} or {@link #KIND_DEFENDERS}
+ *  12  int    attackersMax
+ *  16  int    defendersMax
+ *  20  int    0
+ *  24  double attackerDieChance
+ *  32  double defenderDieChance
+ *  40  double computationAttackersWinChanceTrim
+ *  48  double attackersWinChanceTrim / defendersWinChanceTrim
+ *  56  long   0
+ *  64  index of the lines, 2 ints per line: first, count
+ *      then for each line its 'count' fights from 'first' on, 4 doubles per fight:
+ *      attackersWinChance (NaN = fight not stored), defendersWinChance, expectedAttackersDeaths, expectedDefendersDeaths
+ *
+ * The attackers table keeps, for every number of defenders, only the fights with the most attackers, and the defenders
+ * table, for every number of attackers, only the fights with the most defenders. So a line of the attackers table is
+ * a number of defenders (0..defendersMax) and runs over the attackers, a line of the defenders table is a number of
+ * attackers (0..attackersMax) and runs over the defenders; only the range from the first to the last stored fight
+ * of each line is written, any fight outside of it is not stored.
+ *
+ * Convert the .obj files by {@link #main(String[])}.
+ */
+public abstract class MappedFightResults {
+
+    public static final int MAGIC = 0x574C4654;  // "WLFT"
+
+    public static final int VERSION = 2;
+
+    public static final int KIND_ATTACKERS = 0;
+    public static final int KIND_DEFENDERS = 1;
+
+    private static final int HEADER_SIZE = 64;
+
+    private static final int COLUMN_ATTACKERS_WIN = 0;
+    private static final int COLUMN_DEFENDERS_WIN = 1;
+    private static final int COLUMN_ATTACKERS_DEATHS = 2;
+    private static final int COLUMN_DEFENDERS_DEATHS = 3;
+
+    private static final int COLUMNS = 4;
+
+    private static final int FIGHT_SIZE = COLUMNS * 8;
+
+    private final ByteBuffer buffer;
+
+    private final int attackersMax;
+    private final int defendersMax;
+
+    private final boolean linesByDefenders;
+
+    /**
+     * First fight stored in the line (index within the line).
+     */
+    private final int[] lineFirst;
+    /**
+     * Number of fights stored in the line.
+     */
+    private final int[] lineCount;
+    /**
+     * Byte offset of the first fight of the line within the file.
+     */
+    private final int[] lineOffset;
+
+    /**
+     * Chance that an attacker will be killed during one fight round.
+     */
+    public final double attackerDieChance;
+    /**
+     * Chance that a defender will be killed during one fight round.
+     */
+    public final double defenderDieChance;
+    /**
+     * If fight-state probability dropped below this number, it was rounded to zero and was not used during computation.
+     */
+    public final double computationAttackersWinChanceTrim;
+    /**
+     * Fights whose win chance (of the attackers / defenders, by the kind of the table) dropped below this number are not stored.
+     */
+    public final double winChanceTrim;
+
+    MappedFightResults(File file, int kind) {
+        buffer = map(file);
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+            throw new RuntimeException("Not a fight results file: " + file.getAbsolutePath());
+        if (buffer.getInt(4) != VERSION)
+            throw new RuntimeException("Unsupported version " + buffer.getInt(4) + " of fight results file: " + file.getAbsolutePath());
+        if (buffer.getInt(8) != kind)
+            throw new RuntimeException("Fight results file holds " + (kind == KIND_ATTACKERS ? "defenders" : "attackers") +
+                                       " results: " + file.getAbsolutePath());
+        attackersMax = buffer.getInt(12);
+        defendersMax = buffer.getInt(16);
+        attackerDieChance = buffer.getDouble(24);
+        defenderDieChance = buffer.getDouble(32);
+        computationAttackersWinChanceTrim = buffer.getDouble(40);
+        winChanceTrim = buffer.getDouble(48);
+        if (attackersMax < 0 || defendersMax < 0)
+            throw new RuntimeException("Corrupted fight results file: " + file.getAbsolutePath());
+
+        linesByDefenders = kind == KIND_ATTACKERS;
+        int lines = (linesByDefenders ? defendersMax : attackersMax) + 1;
+        int lineLength = (linesByDefenders ? attackersMax : defendersMax) + 1;
+        lineFirst = new int[lines];
+        lineCount = new int[lines];
+        lineOffset = new int[lines];
+        long offset = HEADER_SIZE + (long)lines * 8;
+        for (int line = 0; line < lines; ++line) {
+            if (offset > buffer.capacity())
+                throw new RuntimeException("Corrupted fight results file: " + file.getAbsolutePath());
+            lineFirst[line] = buffer.getInt(HEADER_SIZE + line * 8);
+            lineCount[line] = buffer.getInt(HEADER_SIZE + line * 8 + 4);
+            lineOffset[line] = (int)offset;
+            if (lineFirst[line] < 0 || lineCount[line] < 0 || lineFirst[line] + lineCount[line] > lineLength)
+                throw new RuntimeException("Corrupted fight results file: " + file.getAbsolutePath());
+            offset += (long)lineCount[line] * FIGHT_SIZE;
+        }
+        if (buffer.capacity() != offset)
+            throw new RuntimeException("Corrupted fight results file: " + file.getAbsolutePath());
+    }
+
+    private static ByteBuffer map(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // the mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to map fight results from: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Pages the whole table into memory, so that later reads do not fault.
+     */
+    public void load() {
+        if (buffer instanceof MappedByteBuffer) ((MappedByteBuffer)buffer).load();
+    }
+
+    public int getAttackersMax() {
+        return attackersMax;
+    }
+
+    public int getDefendersMax() {
+        return defendersMax;
+    }
+
+    protected boolean inRange(int attackers, int defenders) {
+        return attackers >= 0 && attackers <= attackersMax && defenders >= 0 && defenders <= defendersMax;
+    }
+
+    /**
+     * @return false if the fight is not stored; the fight must be {@link #inRange(int, int) in range}
+     */
+    protected boolean hasResult(int attackers, int defenders) {
+        int line = linesByDefenders ? defenders : attackers;
+        int index = (linesByDefenders ? attackers : defenders) - lineFirst[line];
+        if (index < 0 || index >= lineCount[line]) return false;
+        return !Double.isNaN(get(COLUMN_ATTACKERS_WIN, attackers, defenders));
+    }
+
+    /**
+     * The fight must be {@link #hasResult(int, int) stored}.
+     */
+    protected double get(int column, int attackers, int defenders) {
+        int line = linesByDefenders ? defenders : attackers;
+        int index = (linesByDefenders ? attackers : defenders) - lineFirst[line];
+        // absolute reads do not touch the buffer position, so they are safe from any number of threads
+        return buffer.getDouble(lineOffset[line] + index * FIGHT_SIZE + column * 8);
+    }
+
+    // ========
+    // ATTACKERS
+    // ========
+
+    public static class Attackers extends MappedFightResults implements FightAttackersTable {
+
+        public Attackers(File file) {
+            super(file, KIND_ATTACKERS);
+        }
+
+        @Override
+        public double getAttackersWinChance(int attackers, int defenders) {
+            if (!inRange(attackers, defenders) || !hasResult(attackers, defenders)) return 0.0;
+            return get(COLUMN_ATTACKERS_WIN, attackers, defenders);
+        }
+
+        @Override
+        public double getDefendersWinChance(int attackers, int defenders) {
+            if (!inRange(attackers, defenders) || !hasResult(attackers, defenders)) return 1.0;
+            return get(COLUMN_DEFENDERS_WIN, attackers, defenders);
+        }
+
+        @Override
+        public double getExpectedAttackersDeaths(int attackers, int defenders) {
+            if (!inRange(attackers, defenders) || !hasResult(attackers, defenders)) return attackers;
+            return get(COLUMN_ATTACKERS_DEATHS, attackers, defenders);
+        }
+
+        @Override
+        public Double getExpectedDefendersDeaths(int attackers, int defenders) {
+            if (!inRange(attackers, defenders) || !hasResult(attackers, defenders)) return null;
+            return get(COLUMN_DEFENDERS_DEATHS, attackers, defenders);
+        }
+
+    }
+
+    // ========
+    // DEFENDERS
+    // ========
+
+    public static class Defenders extends MappedFightResults implements FightDefendersTable {
+
+        public Defenders(File file) {
+            super(file, KIND_DEFENDERS);
+        }
+
+        private void checkRange(int attackers, int defenders) {
+            // as FightDefendersResults, which indexes its arrays directly
+            if (!inRange(attackers, defenders))
+                throw new ArrayIndexOutOfBoundsException("fight " + attackers + " vs " + defenders + " is outside of A" +
+                                                         getAttackersMax() + "-D" + getDefendersMax());
+        }
+
+        @Override
+        public double getAttackersWinChance(int attackers, int defenders) {
+            checkRange(attackers, defenders);
+            if (!hasResult(attackers, defenders)) return 1;
+            return get(COLUMN_ATTACKERS_WIN, attackers, defenders);
+        }
+
+        @Override
+        public double getDefendersWinChance(int attackers, int defenders) {
+            checkRange(attackers, defenders);
+            if (!hasResult(attackers, defenders)) return 0;
+            return get(COLUMN_DEFENDERS_WIN, attackers, defenders);
+        }
+
+        @Override
+        public Double getExpectedAttackersDeaths(int attackers, int defenders) {
+            checkRange(attackers, defenders);
+            if (!hasResult(attackers, defenders)) return null;
+            return get(COLUMN_ATTACKERS_DEATHS, attackers, defenders);
+        }
+
+        @Override
+        public double getExpectedDefendersDeaths(int attackers, int defenders) {
+            checkRange(attackers, defenders);
+            if (!hasResult(attackers, defenders)) return defenders;
+            return get(COLUMN_DEFENDERS_DEATHS, attackers, defenders);
+        }
+
+    }
+
+    // ========
+    // WRITING
+    // ========
+
+    public static void saveToFile(FightAttackersResults results, File file) {
+        saveToFile(results, KIND_ATTACKERS, results.attackersWinChanceTrim, file);
+    }
+
+    public static void saveToFile(FightDefendersResults results, File file) {
+        saveToFile(results, KIND_DEFENDERS, results.defendersWinChanceTrim, file);
+    }
+
+    private static void saveToFile(FightResults results, int kind, double winChanceTrim, File file) {
+        int attackersMax = results.getAttackersMax();
+        int defendersMax = results.getDefendersMax();
+        boolean linesByDefenders = kind == KIND_ATTACKERS;
+        int lines = (linesByDefenders ? defendersMax : attackersMax) + 1;
+        int lineLength = (linesByDefenders ? attackersMax : defendersMax) + 1;
+
+        // range of stored fights within each line
+        int[] lineFirst = new int[lines];
+        int[] lineCount = new int[lines];
+        int fights = 0;
+        for (int line = 0; line < lines; ++line) {
+            int first = -1;
+            int last = -1;
+            for (int index = 0; index < lineLength; ++index) {
+                FightResult result = linesByDefenders ? results.getResult(index, line) : results.getResult(line, index);
+                if (result == null) continue;
+                if (first < 0) first = index;
+                last = index;
+            }
+            lineFirst[line] = first < 0 ? 0 : first;
+            lineCount[line] = first < 0 ? 0 : last - first + 1;
+            fights += lineCount[line];
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + lines * 8 + fights * FIGHT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(kind).putInt(attackersMax).putInt(defendersMax).putInt(0);
+        buffer.putDouble(results.attackerDieChance).putDouble(results.defenderDieChance);
+        buffer.putDouble(results.computationAttackersWinChanceTrim).putDouble(winChanceTrim).putLong(0);
+
+        for (int line = 0; line < lines; ++line) {
+            buffer.putInt(lineFirst[line]).putInt(lineCount[line]);
+        }
+        for (int line = 0; line < lines; ++line) {
+            for (int index = lineFirst[line]; index < lineFirst[line] + lineCount[line]; ++index) {
+                FightResult result = linesByDefenders ? results.getResult(index, line) : results.getResult(line, index);
+                if (result == null) {
+                    // a gap within the stored range
+                    buffer.putDouble(Double.NaN).putDouble(0).putDouble(0).putDouble(0);
+                } else {
+                    buffer.putDouble(result.attackersWinChance).putDouble(result.defendersWinChance);
+                    buffer.putDouble(result.expectedAttackersDeaths).putDouble(result.expectedDefendersDeaths);
+                }
+            }
+        }
+        buffer.flip();
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw"); FileChannel channel = raf.getChannel()) {
+            channel.truncate(0);
+            while (buffer.hasRemaining()) channel.write(buffer);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to save fight results into: " + file.getAbsolutePath(), e);
+        }
+    }
+
+    /**
+     * Converts serialized fight results into the mapped format, next to them with the .bin extension.
+     * Usage: MappedFightResults [attackers.obj defenders.obj]
+     */
+    public static void main(String[] args) {
+        String attackers = args.length > 0 ? args[0] : "FightSimulation-Attackers-A200-D200.obj";
+        String defenders = args.length > 1 ? args[1] : "FightSimulation-Defenders-A200-D200.obj";
+
+        File attackersBin = binFile(attackers);
+        System.out.println("CONVERTING " + attackers + " -> " + attackersBin.getPath());
+        saveToFile(FightAttackersResults.loadFromFile(new File(attackers)), attackersBin);
+
+        File defendersBin = binFile(defenders);
+        System.out.println("CONVERTING " + defenders + " -> " + defendersBin.getPath());
+        saveToFile(FightDefendersResults.loadFromFile(new File(defenders)), defendersBin);
+
+        System.out.println("---// DONE //---");
+    }
+
+    /**
+     * @return the .bin file next to the serialized 'objPath'
+     */
+    static File binFile(String objPath) {
+        int dot = objPath.lastIndexOf('.');
+        return new File((dot > 0 ? objPath.substring(0, dot) : objPath) + ".bin");
+    }
+
+}
@@ -0,0 +1,162 @@
+package warlight.bot.fight;
+
+import java.io.File;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+import warlight.bot.fight.FightSimulation.FightAttackersResults;
+import warlight.bot.fight.FightSimulation.FightDefendersResults;
+
+/**
+ * Parallel version of {@link FightSimulation#GenerateFightResults}: the attackers table is filled column by column
+ * (one column per number of defenders) and the defenders table row by row, columns / rows spread over a {@link ForkJoinPool}.
+ * Every column / row is computed by the same code as the sequential run and writes only its own cells of the
+ * preallocated results, so no locking is needed and the tables are bit-identical to the sequential ones.
+ */
+public class ParallelFightGenerator {
+
+    public static interface Progress {
+
+        /**
+         * Called (from any of the worker threads) whenever a column / row of 'table' is finished.
+         * @param table "attackers" or "defenders"
+         */
+        public void update(String table, int done, int total);
+
+    }
+
+    /**
+     * Number of worker threads.
+     */
+    public int parallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Null => no progress reported.
+     */
+    public Progress progress = null;
+
+    public FightAttackersResults generateAttackers(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double computationAttackersWinChanceTrim, double attackersWinChanceTrim) {
+        FightAttackersResults results = new FightAttackersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance, computationAttackersWinChanceTrim, attackersWinChanceTrim);
+        run(new LinesTask("attackers",
+                          defenders -> FightSimulation.GenerateFightAttackersColumn(results, defenders, defenderDieChance, attackerDieChance, true),
+                          1, defendersMax + 1, defendersMax, new AtomicInteger()));
+        return results;
+    }
+
+    public FightDefendersResults generateDefenders(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double computationAttackersWinChanceTrim, double defendersWinChanceTrim) {
+        FightDefendersResults results = new FightDefendersResults(attackersMax, defendersMax, attackerDieChance, defenderDieChance, computationAttackersWinChanceTrim, defendersWinChanceTrim);
+        run(new LinesTask("defenders",
+                          attackers -> FightSimulation.GenerateFightDefendersRow(results, attackers, defenderDieChance, attackerDieChance, true),
+                          1, attackersMax + 1, attackersMax, new AtomicInteger()));
+        return results;
+    }
+
+    /**
+     * Same as {@link FightSimulation#GenerateFightResults}, writing the same files (.obj and .bin).
+     */
+    public void generate(int attackersMax, int defendersMax, double defenderDieChance, double attackerDieChance, double computationAttackersWinChanceTrim, double attackersWinChanceTrim, double defendersWinChanceTrim, File attackersFile, File defendersFile) {
+        FightAttackersResults attackersResults = generateAttackers(attackersMax, defendersMax, defenderDieChance, attackerDieChance, computationAttackersWinChanceTrim, attackersWinChanceTrim);
+        attackersResults.saveToFile(attackersFile);
+        MappedFightResults.saveToFile(attackersResults, MappedFightResults.binFile(attackersFile.getPath()));
+
+        FightDefendersResults defendersResults = generateDefenders(attackersMax, defendersMax, defenderDieChance, attackerDieChance, computationAttackersWinChanceTrim, defendersWinChanceTrim);
+        defendersResults.saveToFile(defendersFile);
+        MappedFightResults.saveToFile(defendersResults, MappedFightResults.binFile(defendersFile.getPath()));
+    }
+
+    private void run(LinesTask task) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Lines [from, to) split in halves down to single lines; columns differ a lot in cost, work stealing evens that out.
+     */
+    private class LinesTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String table;
+        private final IntConsumer line;
+        private final int from, to, total;
+        private final AtomicInteger done;
+
+        LinesTask(String table, IntConsumer line, int from, int to, int total, AtomicInteger done) {
+            this.table = table;
+            this.line = line;
+            this.from = from;
+            this.to = to;
+            this.total = total;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            if (to <= from) return;
+            if (to - from == 1) {
+                line.accept(from);
+                int finished = done.incrementAndGet();
+                if (progress != null) progress.update(table, finished, total);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LinesTask(table, line, from, mid, total, done), new LinesTask(table, line, mid, to, total, done));
+        }
+
+    }
+
+    /**
+     * Checks that the parallel tables equal the sequential ones and times both.
+     */
+    public static void main(String[] args) {
+        int max = args.length > 0 ? Integer.parseInt(args[0]) : 60;
+
+        long time = System.currentTimeMillis();
+        FightAttackersResults sequentialAttackers = new FightAttackersResults(max, max, 0.7, 0.6, 0.00000001, 0.001);
+        for (int defenders = 1; defenders <= max; ++defenders)
+            FightSimulation.GenerateFightAttackersColumn(sequentialAttackers, defenders, 0.6, 0.7, true);
+        FightDefendersResults sequentialDefenders = new FightDefendersResults(max, max, 0.7, 0.6, 0.00000001, 0.001);
+        for (int attackers = 1; attackers <= max; ++attackers)
+            FightSimulation.GenerateFightDefendersRow(sequentialDefenders, attackers, 0.6, 0.7, true);
+        long sequential = System.currentTimeMillis() - time;
+
+        ParallelFightGenerator generator = new ParallelFightGenerator();
+        generator.progress = (table, done, total) -> {
+            if (done % Math.max(1, total / 4) == 0) System.out.println(table + ": " + done + " / " + total);
+        };
+        time = System.currentTimeMillis();
+        FightAttackersResults parallelAttackers = generator.generateAttackers(max, max, 0.6, 0.7, 0.00000001, 0.001);
+        FightDefendersResults parallelDefenders = generator.generateDefenders(max, max, 0.6, 0.7, 0.00000001, 0.001);
+        long parallel = System.currentTimeMillis() - time;
+
+        boolean same = same(sequentialAttackers, parallelAttackers) && same(sequentialDefenders, parallelDefenders);
+        System.out.println("A" + max + "-D" + max + ": sequential " + sequential + " ms, parallel (" + generator.parallelism + " threads) " +
+                           parallel + " ms, " + (same ? "bit-identical" : "DIFFERENT"));
+        if (!same) System.exit(1);
+    }
+
+    private static boolean same(FightSimulation.FightResults a, FightSimulation.FightResults b) {
+        for (int i = 0; i <= a.getAttackersMax(); ++i) {
+            for (int j = 0; j <= a.getDefendersMax(); ++j) {
+                FightResult x = a.getResult(i, j), y = b.getResult(i, j);
+                if (x == null || y == null) {
+                    if (x != y) return false;
+                    continue;
+                }
+                if (Double.doubleToRawLongBits(x.attackersWinChance) != Double.doubleToRawLongBits(y.attackersWinChance)
+                    || Double.doubleToRawLongBits(x.defendersWinChance) != Double.doubleToRawLongBits(y.defendersWinChance)
+                    || Double.doubleToRawLongBits(x.expectedAttackersDeaths) != Double.doubleToRawLongBits(y.expectedAttackersDeaths)
+                    || Double.doubleToRawLongBits(x.expectedDefendersDeaths) != Double.doubleToRawLongBits(y.expectedDefendersDeaths))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -3,23 +3,22 @@ import java.util.*;
 
 import warlight.bot.BotParser;
 import warlight.bot.Bot;
-import warlight.bot.fight.FightSimulation.FightAttackersResults;
+import warlight.bot.fight.FightAttackersTable;
+import warlight.bot.fight.FightTables;
 import warlight.engine.Config;
 import warlight.engine.RunGame;
 import warlight.game.*;
 import warlight.game.move.*;
 import warlight.game.world.WorldRegion;
-import warlight.utils.Util;
 
 public class MyBot implements Bot
 {
     Random rand = new Random();
     
-    FightAttackersResults attackResults;
+    FightAttackersTable attackResults;
     
     public MyBot() {
-        attackResults = FightAttackersResults.loadFromFile(Util.findFile(
-                "Warlight-Bots/FightSimulation-Attackers-A200-D200.obj"));
+        attackResults = FightTables.getAttackers();
     }
     
     // Code your bot here.
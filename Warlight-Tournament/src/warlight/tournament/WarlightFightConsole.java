@@ -8,6 +8,7 @@ import com.martiansoftware.jsap.JSAP;
 import com.martiansoftware.jsap.JSAPException;
 import com.martiansoftware.jsap.JSAPResult;
 
+import warlight.bot.fight.FightTables;
 import warlight.engine.Config;
 
 public class WarlightFightConsole {
@@ -395,6 +396,9 @@ public class WarlightFightConsole {
     
     private static void fight() {
         
+        // internal bots share the fight tables, load them before the first game
+        FightTables.prewarm();
+        
         if (batchFight) {
             batchFight();
         } else {
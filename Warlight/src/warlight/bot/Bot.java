@@ -34,6 +34,18 @@ public interface Bot {
      */
     public WorldRegion chooseRegion(GameState state);
     
+    /**
+     * CHOOSE REGIONS by id - called only at the beginning instead of {@link #chooseRegion(GameState)}.
+     * Override to play maps other than the standard one, where no {@link WorldRegion} exists;
+     * the default returns the id of {@link #chooseRegion(GameState)}.
+     * @param state
+     * @return id of one of {@link GameState#getPickableRegions()}, anything else makes the engine pick a random region
+     */
+    public default int chooseRegionId(GameState state) {
+        WorldRegion region = chooseRegion(state);
+        return region == null ? 0 : region.id;
+    }
+    
     /**
      * PLACE ARMIES - distribute armies between your regions.
      * @param state
@@ -41,6 +41,16 @@ public class BotParser extends Thread {
 
     FileBotLog log;
     
+    /**
+     * continent id -> reward, from 'setup_map super_regions'; null until received
+     */
+    int[] setupContinentRewards;
+    
+    /**
+     * region id -> continent id, from 'setup_map regions'; null until received
+     */
+    int[] setupContinentOf;
+    
     public BotParser(Bot bot) {
         this(bot, System.in, System.out);
     }
@@ -126,6 +136,42 @@ public class BotParser extends Thread {
         state.setPickableRegions(regions);
     }
 
+    //topology of a map other than the standard one, see Engine.sendSetupMapInfo(); 'neighbors' comes last and replaces the state
+    void setupMap(String[] mapInput)
+    {
+        switch (mapInput[1]) {
+            case "super_regions":
+                setupContinentRewards = new int[(mapInput.length - 2) / 2 + 1];
+                for (int i = 2; i + 1 < mapInput.length; i += 2)
+                    setupContinentRewards[Integer.parseInt(mapInput[i])] = Integer.parseInt(mapInput[i + 1]);
+                break;
+            case "regions":
+                setupContinentOf = new int[(mapInput.length - 2) / 2 + 1];
+                for (int i = 2; i + 1 < mapInput.length; i += 2)
+                    setupContinentOf[Integer.parseInt(mapInput[i])] = Integer.parseInt(mapInput[i + 1]);
+                break;
+            case "neighbors":
+                if (setupContinentRewards == null || setupContinentOf == null)
+                    throw new RuntimeException("neighbors received before super_regions and regions");
+                int[][] neighbors = new int[setupContinentOf.length][];
+                for (int i = 2; i + 1 < mapInput.length; i += 2) {
+                    String[] ids = mapInput[i + 1].split(",");
+                    int[] list = new int[ids.length];
+                    for (int j = 0; j < ids.length; ++j)
+                        list[j] = Integer.parseInt(ids[j]);
+                    neighbors[Integer.parseInt(mapInput[i])] = list;
+                }
+                MapTopology topology = new MapTopology(setupContinentOf, setupContinentRewards, neighbors, null, null);
+                GameState state = new GameState(null, GameState.makeInitMap(topology), null, new ArrayList<Region>());
+                state.setTurn(currentState.me());
+                state.setRoundNumber(currentState.getRoundNumber());
+                currentState = state;
+                break;
+            default:
+                throw new RuntimeException("unknown map setup '" + mapInput[1] + "'");
+        }
+    }
+
     //visible regions are given to the bot with player and armies info
     void updateMap(GameState state, String[] mapInput)
     {
@@ -192,8 +238,7 @@ public class BotParser extends Thread {
                     //pick a region you want to start with
                     currentState.setPhase(Phase.STARTING_REGIONS);
                     setPickableStartingRegions(currentState, parts);
-                    WorldRegion startingRegion = bot.chooseRegion(currentState);
-                    String output = startingRegion.id + "";
+                    String output = bot.chooseRegionId(currentState) + "";
                     
                     log("OUT: " + output);
                     this.output.println(output);
@@ -231,6 +276,18 @@ public class BotParser extends Thread {
                     if (parts[1].equals("your_player_number"))
                         currentState.setTurn(Integer.parseInt(parts[2]));
                     break;
+                case "setup_map":
+                    if (parts.length < 2) {
+                        parseError(line);
+                        break;
+                    }
+                    try {
+                        setupMap(parts);
+                    } catch (RuntimeException e) {
+                        System.err.println("Unable to parse map setup " + e.getMessage());
+                        parseError(line);
+                    }
+                    break;
                 case "update_map":
                     //all visible regions are given
                     updateMap(currentState, parts);
@@ -62,7 +62,7 @@ public class Engine {
     {
         if (gui != null) {
             gui.newRound(game.getRoundNumber());
-            gui.updateRegions(game.getMap().regions);
+            gui.updateRegions(game.getMap().getRegions());
         }
         
         for (int i = 1 ; i <= 2 ; ++i) {
@@ -84,7 +84,7 @@ public class Engine {
                     if (move.getIllegalMove().equals(""))
                         legalMoves.add(move);
                 
-                gui.placeArmies(i, game.getMap().regions, legalMoves);
+                gui.placeArmies(i, game.getMap().getRegions(), legalMoves);
             }
             
             start = System.currentTimeMillis();
@@ -118,7 +118,7 @@ public class Engine {
             for (int p = 1 ; p <= 2 ; ++p) {
                 sendUpdateMapInfo(p);
                 long start = System.currentTimeMillis();
-                Region region = game.region(robot(p).getStartingRegion(game));
+                Region region = robot(p).getStartingRegion(game);
                 if (timeout(robot(p), start)) {
                     System.err.println("bot failed to return starting region in time!");
                     region = null;
@@ -135,7 +135,7 @@ public class Engine {
             }
         
         if (gui != null) {
-            gui.regionsChosen(game.getMap().regions);
+            gui.regionsChosen(game.getMap().getRegions());
         }
     }
     
@@ -144,6 +144,45 @@ public class Engine {
         return game.pickableRegions.get(game.random.nextInt(game.pickableRegions.size()));
     }
     
+    /**
+     * Tells the bots the topology of a map other than the standard one, which they cannot know in advance:
+     * <pre>
+     * setup_map super_regions &lt;continentId&gt; &lt;reward&gt; ...
+     * setup_map regions &lt;regionId&gt; &lt;continentId&gt; ...
+     * setup_map neighbors &lt;regionId&gt; &lt;neighbourId&gt;,&lt;neighbourId&gt;,... ...
+     * </pre>
+     * Neighbourhood is symmetric, every region lists only its neighbours with greater ids.
+     * Nothing is sent on the standard map, so bots (and replays) that predate custom maps keep working on it.
+     */
+    public void sendSetupMapInfo()
+    {
+        MapTopology topology = game.getMap().getTopology();
+        if (topology.isWorld()) return;
+        
+        StringBuilder superRegions = new StringBuilder("setup_map super_regions");
+        for (int c = 1 ; c <= topology.getContinentCount() ; ++c)
+            superRegions.append(' ').append(c).append(' ').append(topology.getContinentReward(c));
+        
+        StringBuilder regions = new StringBuilder("setup_map regions");
+        StringBuilder neighbors = new StringBuilder("setup_map neighbors");
+        for (int id = 1 ; id <= topology.getRegionCount() ; ++id) {
+            regions.append(' ').append(id).append(' ').append(topology.getContinentOf(id));
+            char separator = ' ';
+            for (int n : topology.getNeighbors(id)) {
+                if (n < id) continue;
+                if (separator == ' ') neighbors.append(' ').append(id);
+                neighbors.append(separator).append(n);
+                separator = ',';
+            }
+        }
+        
+        for (int i = 1 ; i <= 2 ; ++i) {
+            robot(i).writeInfo(superRegions.toString());
+            robot(i).writeInfo(regions.toString());
+            robot(i).writeInfo(neighbors.toString());
+        }
+    }
+    
     public void sendAllInfo()
     {
         for (int i = 1 ; i <= 2 ; ++i)
@@ -161,19 +200,20 @@ public class Engine {
     {
         ArrayList<Region> visibleRegions;
         if (game.config.fullyObservableGame) {
-            visibleRegions = game.getMap().regions;
+            visibleRegions = game.getMap().getRegions();
         } else {
             visibleRegions = game.getMap().visibleRegionsForPlayer(player);
         }
-        String updateMapString = "update_map";
+        StringBuilder updateMapString = new StringBuilder(10 + visibleRegions.size() * 10);
+        updateMapString.append("update_map");
         for(Region region : visibleRegions)
         {
             int id = region.getId();
             int owner = region.getOwner();
             int armies = region.getArmies();
             
-            updateMapString = updateMapString.concat(" " + id + " " + owner + " " + armies);
+            updateMapString.append(' ').append(id).append(' ').append(owner).append(' ').append(armies);
         }
-        robot(player).writeInfo(updateMapString);
+        robot(player).writeInfo(updateMapString.toString());
     }
 }
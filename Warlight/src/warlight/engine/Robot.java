@@ -22,7 +22,6 @@ import java.util.*;
 import warlight.engine.replay.GameLog;
 import warlight.game.*;
 import warlight.game.move.*;
-import warlight.game.world.WorldRegion;
 import warlight.view.GUI;
 
 public interface Robot {
@@ -63,7 +62,11 @@ public interface Robot {
 
     public void setup(RobotConfig config);
     
-    public WorldRegion getStartingRegion(GameState state);
+    /**
+     * @return one of {@link GameState#getPickableRegions()} of 'state'; anything else (including null)
+     *         makes the engine pick a random region instead
+     */
+    public Region getStartingRegion(GameState state);
     
     public List<PlaceArmiesMove> getPlaceArmiesMoves(GameState state);
     
@@ -101,6 +101,8 @@ public class RunGame
 
         GUI gui;
         if (config.visualize) {
+            if (!game.getMap().getTopology().isWorld())
+                throw new RuntimeException("GUI can visualize the standard map only, turn visualization off to play on " + config.game.map);
             gui = new GUI(game);
             if (config.visualizeContinual != null) {
                 gui.setContinual(config.visualizeContinual);
@@ -130,6 +132,7 @@ public class RunGame
         }        
                 
         //send the bots the info they need to start
+        engine.sendSetupMapInfo();
         for (int i = 0 ; i < 2 ; ++i)
             robots[i].writeInfo("settings your_player_number " + (i + 1));
         engine.distributeStartingRegions(); //decide the players' starting regions
@@ -6,7 +6,6 @@ import warlight.engine.Robot;
 import warlight.game.*;
 import warlight.game.move.AttackTransferMove;
 import warlight.game.move.PlaceArmiesMove;
-import warlight.game.world.WorldRegion;
 
 public class HumanRobot implements Robot {
     private RobotConfig config;
@@ -18,8 +17,8 @@ public class HumanRobot implements Robot {
     }
 
     @Override
-    public WorldRegion getStartingRegion(GameState state) {
-        return config.gui.chooseRegionHuman().getWorldRegion();
+    public Region getStartingRegion(GameState state) {
+        return state.getRegion(config.gui.chooseRegionHuman().getId());
     }
 
     @Override
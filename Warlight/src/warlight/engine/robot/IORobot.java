@@ -28,7 +28,6 @@ import warlight.engine.io.handler.IHandler;
 import warlight.engine.replay.GameLog;
 import warlight.game.*;
 import warlight.game.move.*;
-import warlight.game.world.WorldRegion;
 
 public class IORobot implements Robot
 {
@@ -68,7 +67,7 @@ public class IORobot implements Robot
     }
         
     @Override
-    public WorldRegion getStartingRegion(GameState state)
+    public Region getStartingRegion(GameState state)
     {
         String output = "pick_starting_region";
         for(Region region : state.getPickableRegions())
@@ -76,7 +75,8 @@ public class IORobot implements Robot
         
         handler.writeLine(output);
         String line = handler.readLine(config.timeoutMillis);
-        return parser.parseStartingRegion(line);
+        int id = parser.parseStartingRegion(line);
+        return 1 <= id && id <= state.getMap().getTopology().getRegionCount() ? state.getRegion(id) : null;
     }
 
     private List<PlaceArmiesMove> placeArmiesMoves(String input) {
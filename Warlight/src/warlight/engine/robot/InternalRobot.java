@@ -9,7 +9,6 @@ import warlight.bot.*;
 import warlight.engine.Robot;
 import warlight.game.*;
 import warlight.game.move.*;
-import warlight.game.world.WorldRegion;
 
 public class InternalRobot implements Robot {
     
@@ -81,12 +80,13 @@ public class InternalRobot implements Robot {
     }
     
     @Override
-    public WorldRegion getStartingRegion(GameState state)
+    public Region getStartingRegion(GameState state)
     {
         if (hijacked) {
             return humanHijack.getStartingRegion(state);            
         }
-        return bot.chooseRegion(state);
+        int id = bot.chooseRegionId(state);
+        return 1 <= id && id <= state.getMap().getTopology().getRegionCount() ? state.getRegion(id) : null;
     }
     
     @Override
@@ -24,7 +24,6 @@ import java.util.*;
 import warlight.engine.Robot;
 import warlight.game.*;
 import warlight.game.move.*;
-import warlight.game.world.WorldRegion;
 
 public class ProcessRobot implements Robot
 {
@@ -60,7 +59,7 @@ public class ProcessRobot implements Robot
     }
     
     @Override
-    public WorldRegion getStartingRegion(GameState state)
+    public Region getStartingRegion(GameState state)
     {
         if (!isRunning()) {
             throw new RuntimeException(botDied());
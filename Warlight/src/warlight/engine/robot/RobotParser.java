@@ -22,7 +22,6 @@ import java.util.ArrayList;
 import warlight.game.move.AttackTransferMove;
 import warlight.game.move.Move;
 import warlight.game.move.PlaceArmiesMove;
-import warlight.game.world.WorldRegion;
 
 public class RobotParser {
     
@@ -63,24 +62,24 @@ public class RobotParser {
 
         if(split[0].equals("place_armies"))        
         {
-            WorldRegion region = parseRegion(split[1], input);
+            int region = parseRegion(split[1], input);
 
             try { armies = Integer.parseInt(split[2]); }
             catch(Exception e) { errorOut("Number of armies input incorrect", input);}
         
-            if(!(region == null || armies == -1))
+            if(!(region == -1 || armies == -1))
                 return new PlaceArmiesMove(region, armies);
             return null;
         }
         else if(split[0].equals("attack/transfer"))
         {
-            WorldRegion fromRegion = parseRegion(split[1], input);
-            WorldRegion toRegion = parseRegion(split[2], input);
+            int fromRegion = parseRegion(split[1], input);
+            int toRegion = parseRegion(split[2], input);
             
             try { armies = Integer.parseInt(split[3]); }
             catch(Exception e) { errorOut("Number of armies input incorrect", input);}
 
-            if(!(fromRegion == null || toRegion == null || armies == -1))
+            if(!(fromRegion == -1 || toRegion == -1 || armies == -1))
                 return new AttackTransferMove(fromRegion, toRegion, armies);
             return null;
         }
@@ -89,18 +88,20 @@ public class RobotParser {
         return null;
     }
     
-    //parse the region given the id string.
-    private WorldRegion parseRegion(String regionId, String input)
+    //parse the region id given the id string. -1 if input is incorrect;
+    //whether the region exists on the map is checked by the game state.
+    private int parseRegion(String regionId, String input)
     {
         int id = -1;
         
         try { id = Integer.parseInt(regionId); }
-        catch(NumberFormatException e) { errorOut("Region id input incorrect", input); return null;}
+        catch(NumberFormatException e) { errorOut("Region id input incorrect", input); return -1;}
         
-        return WorldRegion.forId(id);
+        if (id < 1) { errorOut("Region id input incorrect", input); return -1; }
+        return id;
     }
     
-    public WorldRegion parseStartingRegion(String input)
+    public int parseStartingRegion(String input)
     {
         return parseRegion(input, input);
     }
@@ -0,0 +1,155 @@
+package warlight.game;
+
+import java.util.Random;
+
+/**
+ * Samples Binomial(n, p), i.e. the number of successes among n independent trials of success chance p,
+ * without a random number per trial:
+ * -- inversion (BINV) when n * min(p, 1-p) < {@link #INVERSION_LIMIT}, about n * p + 1 steps of a single uniform;
+ * -- BTPE (Kachitvichyanukul &amp; Schmeiser, "Binomial random variate generation", CACM 1988) otherwise,
+ *    an exact acceptance/rejection method needing about 2 uniforms on average regardless of n.
+ * p &gt; 0.5 is sampled as n - Binomial(n, 1 - p).
+ */
+public class BinomialSampler {
+
+    public static final double INVERSION_LIMIT = 30;
+
+    public static int sample(Random random, int n, double p) {
+        if (n <= 0 || p <= 0) return 0;
+        if (p >= 1) return n;
+        if (p > 0.5) return n - sample(random, n, 1 - p);
+        if (n * p < INVERSION_LIMIT) return inversion(random, n, p);
+        return btpe(random, n, p);
+    }
+
+    /**
+     * BINV, walks the probability mass function from 0; p &lt;= 0.5.
+     */
+    private static int inversion(Random random, int n, double p) {
+        double q = 1 - p;
+        double qn = Math.exp(n * Math.log(q));
+        double np = n * p;
+        int bound = (int)Math.min(n, np + 10 * Math.sqrt(np * q + 1));
+
+        int x = 0;
+        double px = qn;
+        double u = random.nextDouble();
+        while (u > px) {
+            ++x;
+            if (x > bound) {
+                // lost in the far tail by rounding, start over
+                x = 0;
+                px = qn;
+                u = random.nextDouble();
+            } else {
+                u -= px;
+                px = ((n - x + 1) * p * px) / (x * q);
+            }
+        }
+        return x;
+    }
+
+    /**
+     * BTPE: triangle / parallelograms / exponential tails hat over the mass function; p &lt;= 0.5 and n * p &gt;= 30.
+     */
+    private static int btpe(Random random, int n, double p) {
+        double r = p;
+        double q = 1 - r;
+        double nrq = n * r * q;
+        double fm = n * r + r;
+        int m = (int)Math.floor(fm);
+        double p1 = Math.floor(2.195 * Math.sqrt(nrq) - 4.6 * q) + 0.5;
+        double xm = m + 0.5;
+        double xl = xm - p1;
+        double xr = xm + p1;
+        double c = 0.134 + 20.5 / (15.3 + m);
+        double a = (fm - xl) / (fm - xl * r);
+        double laml = a * (1 + a / 2);
+        a = (xr - fm) / (xr * q);
+        double lamr = a * (1 + a / 2);
+        double p2 = p1 * (1 + 2 * c);
+        double p3 = p2 + c / laml;
+        double p4 = p3 + c / lamr;
+
+        while (true) {
+            double u = random.nextDouble() * p4;
+            double v = random.nextDouble();
+            int y;
+
+            if (u <= p1) {
+                // triangle, always accepted
+                return (int)Math.floor(xm - p1 * v + u);
+            }
+            if (u <= p2) {
+                // parallelograms
+                double x = xl + (u - p1) / c;
+                v = v * c + 1 - Math.abs(m - x + 0.5) / p1;
+                if (v > 1) continue;
+                y = (int)Math.floor(x);
+            } else if (u <= p3) {
+                // left exponential tail
+                y = (int)Math.floor(xl + Math.log(v) / laml);
+                if (y < 0 || v == 0) continue;
+                v = v * (u - p2) * laml;
+            } else {
+                // right exponential tail
+                y = (int)Math.floor(xr - Math.log(v) / lamr);
+                if (y > n || v == 0) continue;
+                v = v * (u - p3) * lamr;
+            }
+
+            int k = Math.abs(y - m);
+            if (k <= 20 || k >= nrq / 2 - 1) {
+                // explicit evaluation of f(y) / f(m)
+                double s = r / q;
+                double aa = s * (n + 1);
+                double f = 1;
+                if (m < y) {
+                    for (int i = m + 1; i <= y; ++i) f *= (aa / i - s);
+                } else if (m > y) {
+                    for (int i = y + 1; i <= m; ++i) f /= (aa / i - s);
+                }
+                if (v > f) continue;
+                return y;
+            }
+
+            // squeeze using upper and lower bounds on log(f(y))
+            double rho = (k / nrq) * ((k * (k / 3.0 + 0.625) + 0.16666666666666666) / nrq + 0.5);
+            double t = -(double)k * k / (2 * nrq);
+            double logV = Math.log(v);
+            if (logV < t - rho) return y;
+            if (logV > t + rho) continue;
+
+            // final acceptance / rejection test, Stirling approximations of the factorials
+            double bound = logRatio(n, r, m, y);
+            if (logV > bound) continue;
+            return y;
+        }
+    }
+
+    /**
+     * log(f(y) / f(m)) of the binomial mass function f of (n, r), by Stirling's formula with the 1/12x - 1/360x^3 + ...
+     * corrections of log(m!), log((n-m)!) added and of log(y!), log((n-y)!) subtracted; exact to ~1e-8 for small
+     * factorials, ~1e-11 for larger ones.
+     */
+    static double logRatio(int n, double r, int m, int y) {
+        double q = 1 - r;
+        double xm = m + 0.5;
+        double x1 = y + 1;
+        double f1 = m + 1;
+        double z = n + 1 - m;
+        double w = n - y + 1;
+        return xm * Math.log(f1 / x1) + (n - m + 0.5) * Math.log(z / w) + (y - m) * Math.log(w * r / (x1 * q))
+            + stirlingCorrection(f1) + stirlingCorrection(z)
+            - stirlingCorrection(x1) - stirlingCorrection(w);
+    }
+
+    /**
+     * 1/12x - 1/360x^3 + 1/1260x^5 - 1/1680x^7 + 1/1188x^9, over the common denominator 166320.
+     */
+    private static double stirlingCorrection(double x) {
+        double x2 = x * x;
+        return (13860. - (462. - (132. - (99. - 140. / x2) / x2) / x2) / x2) / x / 166320.;
+    }
+
+}
@@ -20,67 +20,69 @@ import java.util.ArrayList;
 
 import warlight.game.world.WorldContinent;
 
+/**
+ * Lightweight view of a single continent of a {@link GameMap}; its owner is maintained by the map.
+ */
 public class Continent {
-    private WorldContinent worldContinent;
+    private GameMap map;
+    private int id;
     private ArrayList<Region> regions;
-    private int owner;
     
-    public Continent(WorldContinent continent, int owner)
+    Continent(GameMap map, int id)
     {
-        this.worldContinent = continent;
-        this.owner = owner;
-        regions = new ArrayList<Region>();
-    }
-    
-    public void addRegion(Region region)
-    {
-        if(!regions.contains(region))
-            regions.add(region);
+        this.map = map;
+        this.id = id;
     }
     
     public void computeOwner()
     {
-        int player = regions.get(0).getOwner();
-        for(Region region : regions)
-        {
-            if (player != region.getOwner()) {
-                player = 0;
-                break;
-            }
-        }
-        owner = player;
+        map.computeContinentOwner(id);
     }
 
     /**
      * @return The player that fully owns this continent, or 0 if none
      */
     public int getOwner() {
-        return owner;
+        return map.getContinentOwner(id);
     }
     
     /**
      * @return The id of this continent
      */
     public int getId() {
-        return worldContinent.id;
+        return id;
+    }
+    
+    /**
+     * @return The name of this continent as given by the map definition
+     */
+    public String getName() {
+        return map.topology.continentNames[id];
     }
     
     /**
      * @return The number of armies a Player is rewarded when he fully owns this continent
      */
     public int getArmiesReward() {
-        return worldContinent.reward;
+        return map.topology.continentRewards[id];
     }
     
     /**
      * @return A list with the Regions that are part of this continent
      */
     public ArrayList<Region> getRegions() {
+        if (regions == null) {
+            int[] ids = map.topology.continentRegions[id];
+            ArrayList<Region> result = new ArrayList<Region>(ids.length);
+            for (int region : ids)
+                result.add(map.getRegion(region));
+            regions = result;
+        }
         return regions;
     }
 
     public WorldContinent getWorldContinent() {
-        return worldContinent;
+        return map.topology.getWorldContinent(id);
     }
     
 }
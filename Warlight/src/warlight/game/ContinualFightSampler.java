@@ -0,0 +1,275 @@
+package warlight.game;
+
+import java.util.Random;
+
+import warlight.game.GameState.FightResult;
+import warlight.game.GameState.FightSide;
+
+/**
+ * Resolves continual fights (see {@link FightMode#CONTINUAL_1_1_A60_D70}) by sampling the final outcome
+ * from its exact distribution with a single random number, instead of simulating strike after strike.
+ *
+ * The fight is a walk over (attackers lost i, defenders lost j). Rounds where nobody dies change nothing,
+ * so they are dropped and the remaining steps are renormalized: (0,+1) with a0d1, (+1,0) with a1d0, (+1,+1) with a1d1.
+ * g(i,j), the probability that the walk passes through (i,j), follows
+ *   g(i,j) = g(i,j-1) * a0d1 + g(i-1,j) * a1d0 + g(i-1,j-1) * a1d1,  g(0,0) = 1
+ * and does not depend on the army counts. From it, for A attackers vs D defenders:
+ *   attacker wins losing k < A:    g(k,D-1) * a0d1 + g(k-1,D-1) * a1d1
+ *   defender wins losing j < D:    g(A-1,j) * a1d0 + g(A-1,j-1) * a1d1
+ *   both wiped out at once:        g(A-1,D-1) * a1d1, reported as defender win losing D-1 (see FightResult#postProcessFightResult)
+ * Prefix sums of the first kind along k (one row per D) and of the second kind along j (one column per A)
+ * give P(attacker wins) in O(1) and the number of losses by binary search in O(log n).
+ *
+ * Tables grow on demand up to {@link #MAX_ARMIES}; larger fights fall back to the strike-by-strike simulation.
+ * Thread-safe; a table is built once and then only read.
+ */
+public class ContinualFightSampler {
+
+    /**
+     * Largest number of attackers / defenders served from tables. Tables take 24 * MAX_ARMIES^2 bytes at most.
+     */
+    public static final int MAX_ARMIES = 1024;
+
+    private static final int INITIAL_ARMIES = 256;
+
+    public static final ContinualFightSampler A60_D70 = new ContinualFightSampler(0.6, 0.7);
+
+    private static class Tables {
+        final int size;
+        /**
+         * (D - 1) * (size + 1) + K -> probability that the attacker wins against D defenders losing less than K armies;
+         * for A attackers the attacker wins with probability attackerWins[(D - 1) * (size + 1) + A]
+         */
+        final double[] attackerWins;
+        /**
+         * (A - 1) * (size + 1) + J -> probability that A attackers lose the fight killing less than J defenders,
+         * not counting the fights where both sides are wiped out at once
+         */
+        final double[] defenderWins;
+        /**
+         * (A - 1) * size + (D - 1) -> probability that A attackers and D defenders are wiped out at once
+         */
+        final double[] ties;
+
+        Tables(int size, double a0d1, double a1d0, double a1d1) {
+            this.size = size;
+            int stride = size + 1;
+
+            // g over 0..size-1 x 0..size-1, row i = attackers lost
+            double[] g = new double[size * size];
+            for (int i = 0; i < size; ++i)
+                for (int j = 0; j < size; ++j) {
+                    if (i == 0 && j == 0) {
+                        g[0] = 1;
+                        continue;
+                    }
+                    double value = 0;
+                    if (j > 0) value += g[i * size + j - 1] * a0d1;
+                    if (i > 0) value += g[(i - 1) * size + j] * a1d0;
+                    if (i > 0 && j > 0) value += g[(i - 1) * size + j - 1] * a1d1;
+                    g[i * size + j] = value;
+                }
+
+            attackerWins = new double[size * stride];
+            for (int d = 1; d <= size; ++d) {
+                int row = (d - 1) * stride;
+                double sum = 0;
+                for (int k = 0; k < size; ++k) {
+                    sum += g[k * size + d - 1] * a0d1 + (k > 0 ? g[(k - 1) * size + d - 1] * a1d1 : 0);
+                    attackerWins[row + k + 1] = sum;
+                }
+            }
+
+            defenderWins = new double[size * stride];
+            ties = new double[size * size];
+            for (int a = 1; a <= size; ++a) {
+                int row = (a - 1) * stride;
+                double sum = 0;
+                for (int j = 0; j < size; ++j) {
+                    sum += g[(a - 1) * size + j] * a1d0 + (j > 0 ? g[(a - 1) * size + j - 1] * a1d1 : 0);
+                    defenderWins[row + j + 1] = sum;
+                    ties[(a - 1) * size + j] = g[(a - 1) * size + j] * a1d1;
+                }
+            }
+        }
+    }
+
+    private final double defenderDestroyedChance;
+    private final double attackerDestroyedChance;
+
+    private final double a0d1;
+    private final double a1d0;
+    private final double a1d1;
+
+    private volatile Tables tables;
+
+    /**
+     * @param defenderDestroyedChance chance that a strike of the attackers kills one defending army
+     * @param attackerDestroyedChance chance that a strike of the defenders kills one attacking army
+     */
+    public ContinualFightSampler(double defenderDestroyedChance, double attackerDestroyedChance) {
+        double somebodyDies = 1 - (1 - defenderDestroyedChance) * (1 - attackerDestroyedChance);
+        if (!(somebodyDies > 0) || defenderDestroyedChance > 1 || attackerDestroyedChance > 1
+            || defenderDestroyedChance < 0 || attackerDestroyedChance < 0)
+            throw new IllegalArgumentException("invalid chances " + defenderDestroyedChance + " / " + attackerDestroyedChance);
+
+        this.defenderDestroyedChance = defenderDestroyedChance;
+        this.attackerDestroyedChance = attackerDestroyedChance;
+        this.a0d1 = defenderDestroyedChance * (1 - attackerDestroyedChance) / somebodyDies;
+        this.a1d0 = (1 - defenderDestroyedChance) * attackerDestroyedChance / somebodyDies;
+        this.a1d1 = defenderDestroyedChance * attackerDestroyedChance / somebodyDies;
+    }
+
+    public double getDefenderDestroyedChance() {
+        return defenderDestroyedChance;
+    }
+
+    public double getAttackerDestroyedChance() {
+        return attackerDestroyedChance;
+    }
+
+    /**
+     * @return tables covering 'armies' attackers and defenders, or null if that is above {@link #MAX_ARMIES}
+     */
+    private Tables tables(int armies) {
+        Tables current = tables;
+        if (current != null && current.size >= armies)
+            return current;
+        if (armies > MAX_ARMIES)
+            return null;
+        synchronized (this) {
+            current = tables;
+            if (current != null && current.size >= armies)
+                return current;
+            int size = current == null ? INITIAL_ARMIES : current.size;
+            while (size < armies) size *= 2;
+            current = new Tables(Math.min(size, MAX_ARMIES), a0d1, a1d0, a1d1);
+            tables = current;
+            return current;
+        }
+    }
+
+    /**
+     * Samples the outcome of 'attackingArmies' attacking 'defendingArmies'; consumes exactly one random.nextDouble()
+     * unless the fight is larger than {@link #MAX_ARMIES}.
+     */
+    public FightResult sample(Random random, int attackingArmies, int defendingArmies) {
+        FightResult result = new FightResult();
+        sample(random, attackingArmies, defendingArmies, result);
+        return result;
+    }
+
+    /**
+     * As {@link #sample(Random, int, int)}, writing the outcome into 'result'.
+     */
+    public void sample(Random random, int attackingArmies, int defendingArmies, FightResult result) {
+        if (attackingArmies <= 0 || defendingArmies <= 0) {
+            // nothing to simulate, postProcessFightResult decides
+            result.reset();
+            result.postProcessFightResult(attackingArmies, defendingArmies);
+            return;
+        }
+
+        Tables t = tables(Math.max(attackingArmies, defendingArmies));
+        if (t == null) {
+            GameState.doContinualAttack(random, attackingArmies, defendingArmies,
+                                        defenderDestroyedChance, attackerDestroyedChance, result);
+            return;
+        }
+
+        int stride = t.size + 1;
+        double u = random.nextDouble();
+
+        int attackerRow = (defendingArmies - 1) * stride;
+        double attackerWins = t.attackerWins[attackerRow + attackingArmies];
+        if (u < attackerWins) {
+            int k = search(t.attackerWins, attackerRow, attackingArmies, u);
+            result.set(FightSide.ATTACKER, k, defendingArmies);
+            return;
+        }
+
+        u -= attackerWins;
+        int defenderRow = (attackingArmies - 1) * stride;
+        int j;
+        if (u < t.defenderWins[defenderRow + defendingArmies]) {
+            j = search(t.defenderWins, defenderRow, defendingArmies, u);
+        } else {
+            // both sides wiped out at once (or rounding beyond the last outcome)
+            j = defendingArmies - 1;
+        }
+        result.set(FightSide.DEFENDER, attackingArmies, j);
+    }
+
+    /**
+     * @return x in 0..count-1 such that prefix[row + x] <= u < prefix[row + x + 1], for prefix[row] == 0 <= u < prefix[row + count]
+     */
+    private static int search(double[] prefix, int row, int count, double u) {
+        int low = 0, high = count - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (u < prefix[row + mid + 1]) high = mid;
+            else low = mid + 1;
+        }
+        return low;
+    }
+
+    /**
+     * Exact expectations of the fight as sampled by {@link #sample(Random, int, int)}, written into 'result':
+     * [0] chance that the attacker wins, [1] expected attackers destroyed, [2] expected defenders destroyed.
+     * Only for fights of at most {@link #MAX_ARMIES} on each side.
+     */
+    public void expect(int attackingArmies, int defendingArmies, double[] result) {
+        if (attackingArmies <= 0 || defendingArmies <= 0) {
+            FightResult fight = new FightResult();
+            fight.postProcessFightResult(attackingArmies, defendingArmies);
+            result[0] = fight.winner == FightSide.ATTACKER ? 1 : 0;
+            result[1] = fight.attackersDestroyed;
+            result[2] = fight.defendersDestroyed;
+            return;
+        }
+        Tables t = tables(Math.max(attackingArmies, defendingArmies));
+        if (t == null)
+            throw new IllegalArgumentException("fight " + attackingArmies + " vs " + defendingArmies + " is above " + MAX_ARMIES);
+        int stride = t.size + 1;
+
+        int row = (defendingArmies - 1) * stride;
+        double win = t.attackerWins[row + attackingArmies];
+        double attackers = attackingArmies * (1 - win);
+        for (int k = 1; k < attackingArmies; ++k)
+            attackers += k * (t.attackerWins[row + k + 1] - t.attackerWins[row + k]);
+
+        row = (attackingArmies - 1) * stride;
+        double defenders = defendingArmies * win
+                         + (defendingArmies - 1) * t.ties[(attackingArmies - 1) * t.size + defendingArmies - 1];
+        for (int j = 1; j < defendingArmies; ++j)
+            defenders += j * (t.defenderWins[row + j + 1] - t.defenderWins[row + j]);
+
+        result[0] = win;
+        result[1] = attackers;
+        result[2] = defenders;
+    }
+
+    /**
+     * Exact probability of an outcome as sampled by {@link #sample(Random, int, int)}, after
+     * {@link FightResult#postProcessFightResult(int, int) post-processing}.
+     * Only for fights of at most {@link #MAX_ARMIES} on each side.
+     */
+    public double probability(int attackingArmies, int defendingArmies, FightSide winner, int destroyed) {
+        Tables t = tables(Math.max(attackingArmies, defendingArmies));
+        if (t == null)
+            throw new IllegalArgumentException("fight " + attackingArmies + " vs " + defendingArmies + " is above " + MAX_ARMIES);
+        int stride = t.size + 1;
+        if (winner == FightSide.ATTACKER) {
+            if (destroyed < 0 || destroyed >= attackingArmies) return 0;
+            int row = (defendingArmies - 1) * stride;
+            return t.attackerWins[row + destroyed + 1] - t.attackerWins[row + destroyed];
+        }
+        if (destroyed < 0 || destroyed >= defendingArmies) return 0;
+        int row = (attackingArmies - 1) * stride;
+        double result = t.defenderWins[row + destroyed + 1] - t.defenderWins[row + destroyed];
+        if (destroyed == defendingArmies - 1)
+            result += t.ties[(attackingArmies - 1) * t.size + defendingArmies - 1];
+        return result;
+    }
+
+}
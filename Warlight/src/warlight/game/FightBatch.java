@@ -0,0 +1,256 @@
+package warlight.game;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import warlight.game.GameState.FightResult;
+import warlight.game.GameState.FightSide;
+
+/**
+ * Resolves many hypothetical fights at once, fight i being attackers[i] vs defenders[i], into primitive arrays;
+ * meant for bots and analysis tools asking "what if" for every neighbour under several army splits.
+ *
+ * -- {@link #sample} draws outcomes from a {@link FightResolver};
+ * -- {@link #expect} computes exact expectations of a {@link FightMode}.
+ *
+ * Batches are cut into chunks of {@link #GRAIN} fights; given a {@link ForkJoinPool} the chunks run in parallel,
+ * without one in the calling thread. Sampled chunks draw from generators {@link GameRandom#split() split} along
+ * the same cuts either way, so the results depend on the seed only, not on the pool or its scheduling.
+ */
+public class FightBatch {
+
+    /**
+     * Number of fights below which a batch is not cut further.
+     */
+    public static final int GRAIN = 1024;
+
+    // ========
+    // SAMPLED
+    // ========
+
+    /**
+     * Samples fight i with 'resolver', writing the post-processed losses into attackersDestroyed[i] and defendersDestroyed[i].
+     * The attacker won fight i iff defendersDestroyed[i] == defenders[i].
+     * 'random' is advanced (by splitting) and must not be used by other threads meanwhile.
+     * @param pool null => sequentially in the calling thread
+     */
+    public static void sample(FightResolver resolver, GameRandom random, int[] attackers, int[] defenders,
+                              int[] attackersDestroyed, int[] defendersDestroyed, ForkJoinPool pool) {
+        int count = checkLengths(attackers, defenders);
+        if (attackersDestroyed.length < count || defendersDestroyed.length < count)
+            throw new IllegalArgumentException("result arrays are shorter than " + count);
+
+        SampleTask task = new SampleTask(resolver, random, attackers, defenders, attackersDestroyed, defendersDestroyed, 0, count);
+        if (pool == null) task.compute();
+        else pool.invoke(task);
+    }
+
+    private static class SampleTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FightResolver resolver;
+        private final GameRandom random;
+        private final int[] attackers, defenders, attackersDestroyed, defendersDestroyed;
+        private final int from, to;
+
+        SampleTask(FightResolver resolver, GameRandom random, int[] attackers, int[] defenders,
+                   int[] attackersDestroyed, int[] defendersDestroyed, int from, int to) {
+            this.resolver = resolver;
+            this.random = random;
+            this.attackers = attackers;
+            this.defenders = defenders;
+            this.attackersDestroyed = attackersDestroyed;
+            this.defendersDestroyed = defendersDestroyed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                FightResult result = new FightResult();
+                for (int i = from; i < to; ++i) {
+                    resolver.resolve(random, attackers[i], defenders[i], result);
+                    attackersDestroyed[i] = result.attackersDestroyed;
+                    defendersDestroyed[i] = Math.min(result.defendersDestroyed, defenders[i]);
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            SampleTask right = new SampleTask(resolver, random.split(), attackers, defenders,
+                                              attackersDestroyed, defendersDestroyed, mid, to);
+            SampleTask left = new SampleTask(resolver, random, attackers, defenders,
+                                             attackersDestroyed, defendersDestroyed, from, mid);
+            if (inForkJoinPool()) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+        }
+    }
+
+    // ========
+    // EXPECTED
+    // ========
+
+    /**
+     * Exact expectations of fight i under 'mode' (a sampled mode has the distribution of the mode it samples):
+     * chance that the attacker wins, expected attackers destroyed and expected defenders destroyed
+     * (at most defenders[i], as on the map). Any of the result arrays may be null if not needed.
+     * Continual fights are limited to {@link ContinualFightSampler#MAX_ARMIES} armies on each side.
+     * @param pool null => sequentially in the calling thread
+     */
+    public static void expect(FightMode mode, int[] attackers, int[] defenders,
+                              double[] attackerWinChance, double[] attackersDestroyed, double[] defendersDestroyed,
+                              ForkJoinPool pool) {
+        int count = checkLengths(attackers, defenders);
+        if (attackerWinChance != null && attackerWinChance.length < count
+            || attackersDestroyed != null && attackersDestroyed.length < count
+            || defendersDestroyed != null && defendersDestroyed.length < count)
+            throw new IllegalArgumentException("result arrays are shorter than " + count);
+
+        ExpectTask task = new ExpectTask(mode, attackers, defenders, attackerWinChance, attackersDestroyed, defendersDestroyed, 0, count);
+        if (pool == null) task.compute();
+        else pool.invoke(task);
+    }
+
+    private static class ExpectTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FightMode mode;
+        private final int[] attackers, defenders;
+        private final double[] attackerWinChance, attackersDestroyed, defendersDestroyed;
+        private final int from, to;
+
+        ExpectTask(FightMode mode, int[] attackers, int[] defenders,
+                   double[] attackerWinChance, double[] attackersDestroyed, double[] defendersDestroyed, int from, int to) {
+            this.mode = mode;
+            this.attackers = attackers;
+            this.defenders = defenders;
+            this.attackerWinChance = attackerWinChance;
+            this.attackersDestroyed = attackersDestroyed;
+            this.defendersDestroyed = defendersDestroyed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= GRAIN) {
+                double[] result = new double[3];
+                double[][] scratch = new double[2][];
+                for (int i = from; i < to; ++i) {
+                    switch (mode) {
+                    case CONTINUAL_1_1_A60_D70:
+                    case CONTINUAL_1_1_A60_D70_SAMPLED:
+                        ContinualFightSampler.A60_D70.expect(attackers[i], defenders[i], result);
+                        break;
+                    case ORIGINAL_A60_D70:
+                    case ORIGINAL_A60_D70_SAMPLED:
+                        expectOriginal(attackers[i], defenders[i], 0.6, 0.7, result, scratch);
+                        break;
+                    default:
+                        throw new RuntimeException("Unhandled FightMode: " + mode);
+                    }
+                    if (attackerWinChance != null) attackerWinChance[i] = result[0];
+                    if (attackersDestroyed != null) attackersDestroyed[i] = result[1];
+                    if (defendersDestroyed != null) defendersDestroyed[i] = result[2];
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            ExpectTask left = new ExpectTask(mode, attackers, defenders, attackerWinChance, attackersDestroyed, defendersDestroyed, from, mid);
+            ExpectTask right = new ExpectTask(mode, attackers, defenders, attackerWinChance, attackersDestroyed, defendersDestroyed, mid, to);
+            if (inForkJoinPool()) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+        }
+    }
+
+    /**
+     * Expectations of {@link GameState#doOriginalAttack}: the defenders destroyed X ~ Bin(A, p) and the attackers
+     * destroyed Y ~ Bin(D, q) are independent. Post-processed, the attackers lose min(Y, A); if Y &gt;= A the defenders
+     * lose min(X, D - 1) and win, otherwise they lose min(X, D) and the attacker wins iff X &gt;= D.
+     */
+    static void expectOriginal(int attackingArmies, int defendingArmies,
+                               double defenderDestroyedChance, double attackerDestroyedChance,
+                               double[] result, double[][] scratch) {
+        if (attackingArmies <= 0 || defendingArmies <= 0) {
+            FightResult fight = new FightResult();
+            fight.postProcessFightResult(attackingArmies, defendingArmies);
+            result[0] = fight.winner == FightSide.ATTACKER ? 1 : 0;
+            result[1] = fight.attackersDestroyed;
+            result[2] = Math.min(fight.defendersDestroyed, Math.max(0, defendingArmies));
+            return;
+        }
+
+        double[] x = scratch[0] = binomial(attackingArmies, defenderDestroyedChance, scratch[0]);
+        double[] y = scratch[1] = binomial(defendingArmies, attackerDestroyedChance, scratch[1]);
+
+        double attackersWiped = 0, attackers = 0;
+        for (int k = 0; k <= defendingArmies; ++k) {
+            if (k >= attackingArmies) attackersWiped += y[k];
+            attackers += y[k] * Math.min(k, attackingArmies);
+        }
+        double defendersWiped = 0, defenders = 0, defendersBelowAll = 0;
+        for (int j = 0; j <= attackingArmies; ++j) {
+            if (j >= defendingArmies) defendersWiped += x[j];
+            defenders += x[j] * Math.min(j, defendingArmies);
+            defendersBelowAll += x[j] * Math.min(j, defendingArmies - 1);
+        }
+
+        result[0] = (1 - attackersWiped) * defendersWiped;
+        result[1] = attackers;
+        result[2] = (1 - attackersWiped) * defenders + attackersWiped * defendersBelowAll;
+    }
+
+    /**
+     * Mass function of Bin(n, p) over 0..n into 'into' (reallocated if too short); computed outwards from the mode
+     * and normalized, so that large n do not underflow.
+     */
+    private static double[] binomial(int n, double p, double[] into) {
+        if (into == null || into.length < n + 1) into = new double[Math.max(n + 1, into == null ? 16 : 2 * into.length)];
+        Arrays.fill(into, 0, n + 1, 0);
+        if (p <= 0) {
+            into[0] = 1;
+            return into;
+        }
+        if (p >= 1) {
+            into[n] = 1;
+            return into;
+        }
+        double odds = p / (1 - p);
+        int mode = Math.min(n, (int)((n + 1) * p));
+        into[mode] = 1;
+        double sum = 1;
+        for (int k = mode; k < n && into[k] > 0; ++k) {
+            into[k + 1] = into[k] * (n - k) / (k + 1) * odds;
+            sum += into[k + 1];
+        }
+        for (int k = mode; k > 0 && into[k] > 0; --k) {
+            into[k - 1] = into[k] * k / (n - k + 1) / odds;
+            sum += into[k - 1];
+        }
+        for (int k = 0; k <= n; ++k)
+            into[k] /= sum;
+        return into;
+    }
+
+    // ========
+    // UTILS
+    // ========
+
+    private static int checkLengths(int[] attackers, int[] defenders) {
+        if (attackers.length != defenders.length)
+            throw new IllegalArgumentException("attackers and defenders differ in length: " + attackers.length + " vs " + defenders.length);
+        return attackers.length;
+    }
+
+}
@@ -18,6 +18,55 @@ public enum FightMode {
      * 
      * You may use: {@link Engine#doAttack_CONTINUAL_1_1_A60_D70(Random, int, int)} method for off-engine simulation.
      */
-    CONTINUAL_1_1_A60_D70
+    CONTINUAL_1_1_A60_D70,
+    
+    /**
+     * Same fight as {@link #CONTINUAL_1_1_A60_D70} with the same outcome distribution, but the outcome is sampled
+     * by {@link ContinualFightSampler} with one random number instead of simulating every round.
+     * Games are NOT replay-compatible with {@link #CONTINUAL_1_1_A60_D70} as the random numbers are used differently.
+     * 
+     * You may use: {@link ContinualFightSampler#sample(java.util.Random, int, int)} of {@link ContinualFightSampler#A60_D70}
+     * (or {@link #getResolver()}) for off-engine simulation.
+     */
+    CONTINUAL_1_1_A60_D70_SAMPLED,
+    
+    /**
+     * Same fight as {@link #ORIGINAL_A60_D70} with the same outcome distribution, but the numbers of destroyed armies
+     * are sampled by {@link BinomialSampler} instead of rolling for every army.
+     * Games are NOT replay-compatible with {@link #ORIGINAL_A60_D70} as the random numbers are used differently.
+     * 
+     * You may use: {@link #getResolver()} for off-engine simulation, or draw the destroyed armies yourself by
+     * {@link BinomialSampler#sample(java.util.Random, int, double)} (attackers kill B(attackers, 0.6) defenders,
+     * defenders kill B(defenders, 0.7) attackers).
+     */
+    ORIGINAL_A60_D70_SAMPLED;
+    
+    private FightResolver resolver;
+    
+    /**
+     * @return built-in resolver of the mode, also registered in {@link FightResolvers} under {@link #name()}
+     */
+    public FightResolver getResolver() {
+        if (resolver == null) {
+            // stateless, so racing threads may safely create one each
+            switch (this) {
+            case ORIGINAL_A60_D70:
+                resolver = (random, a, d, result) -> GameState.doOriginalAttack(random, a, d, 0.6, 0.7, result);
+                break;
+            case CONTINUAL_1_1_A60_D70:
+                resolver = (random, a, d, result) -> GameState.doContinualAttack(random, a, d, 0.6, 0.7, result);
+                break;
+            case CONTINUAL_1_1_A60_D70_SAMPLED:
+                resolver = ContinualFightSampler.A60_D70::sample;
+                break;
+            case ORIGINAL_A60_D70_SAMPLED:
+                resolver = (random, a, d, result) -> GameState.doOriginalAttackSampled(random, a, d, 0.6, 0.7, result);
+                break;
+            default:
+                throw new RuntimeException("Unhandled FightMode: " + this);
+            }
+        }
+        return resolver;
+    }
     
 }
@@ -0,0 +1,21 @@
+package warlight.game;
+
+import java.util.Random;
+
+import warlight.game.GameState.FightResult;
+
+/**
+ * Decides the outcome of one attack; the game picks its resolver by name from {@link FightResolvers}
+ * (see {@link GameConfig#fightResolver}).
+ *
+ * Implementations must not keep per-fight state: one instance serves all games, possibly from several threads at once.
+ */
+public interface FightResolver {
+
+    /**
+     * Fights 'attackingArmies' against 'defendingArmies', drawing randomness only from 'random'.
+     * All fields of 'result' are overwritten; the outcome must be {@link FightResult#postProcessFightResult(int, int) post-processed}.
+     */
+    void resolve(Random random, int attackingArmies, int defendingArmies, FightResult result);
+
+}
@@ -0,0 +1,54 @@
+package warlight.game;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link FightResolver}s by name. Every {@link FightMode} is registered under its {@link FightMode#name()};
+ * further resolvers must be registered before a game referring to them (by {@link GameConfig#fightResolver}) starts.
+ */
+public class FightResolvers {
+
+    private static final Map<String, FightResolver> resolvers = new ConcurrentHashMap<String, FightResolver>();
+
+    static {
+        for (FightMode mode : FightMode.values())
+            resolvers.put(mode.name(), mode.getResolver());
+    }
+
+    /**
+     * Registers 'resolver' under 'name'; registering the same resolver again is a no-op.
+     * @throws IllegalArgumentException if the name is taken by another resolver or cannot be stored in a {@link GameConfig#getCSV() config line}
+     */
+    public static void register(String name, FightResolver resolver) {
+        if (name == null || name.isEmpty() || name.contains(";"))
+            throw new IllegalArgumentException("Invalid fight resolver name: '" + name + "'");
+        if (resolver == null)
+            throw new IllegalArgumentException("Fight resolver '" + name + "' is null");
+        FightResolver previous = resolvers.putIfAbsent(name, resolver);
+        if (previous != null && previous != resolver)
+            throw new IllegalArgumentException("Fight resolver '" + name + "' is already registered");
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no resolver of that name
+     */
+    public static FightResolver get(String name) {
+        FightResolver result = resolvers.get(name);
+        if (result == null)
+            throw new IllegalArgumentException("Unknown fight resolver '" + name + "', registered: " + getNames());
+        return result;
+    }
+
+    public static boolean isRegistered(String name) {
+        return resolvers.containsKey(name);
+    }
+
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<String>(resolvers.keySet()));
+    }
+
+}
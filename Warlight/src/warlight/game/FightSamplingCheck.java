@@ -0,0 +1,359 @@
+package warlight.game;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import warlight.game.GameState.FightResult;
+import warlight.game.GameState.FightSide;
+
+/**
+ * Exactness checks of the sampled fight modes against the fights they replace; run it after touching any of them.
+ * Exits with status 1 if a check fails.
+ *
+ * -- the outcome distribution of {@link ContinualFightSampler} is compared with an independent backward recursion
+ *    over the strike-by-strike fight of {@link GameState#doContinualAttack};
+ * -- samples of both are compared by a chi-square test;
+ * -- samples of {@link BinomialSampler} are tested against the exact binomial distribution, on both sides of
+ *    the inversion / BTPE switch; the BTPE final acceptance bound is compared with the exact log mass ratio and
+ *    large BTPE samples by the maximum deviation of any bin;
+ * -- samples of {@link GameState#doOriginalAttackSampled} are compared with {@link GameState#doOriginalAttack};
+ * -- expectations of {@link FightBatch#expect} are compared with the exact distribution (continual) and with
+ *    sample means (original), and parallel {@link FightBatch#sample batches} must equal sequential ones.
+ */
+public class FightSamplingCheck {
+
+    private static final double MAX_ERROR = 1e-12;
+
+    private static boolean failed = false;
+
+    public static void main(String[] args) {
+        checkContinualDistribution(ContinualFightSampler.A60_D70, 60, new int[][] { {200, 200}, {300, 150}, {90, 400} });
+        checkContinualDistribution(new ContinualFightSampler(0.3, 0.9), 30, new int[0][]);
+
+        Random random = new Random(1234);
+        int[][] pairs = { {1, 1}, {3, 2}, {5, 5}, {12, 7}, {20, 25}, {100, 80}, {400, 380} };
+        for (int[] pair : pairs)
+            checkContinualSamples(ContinualFightSampler.A60_D70, random, pair[0], pair[1], 200000);
+
+        double[][] binomials = { {1, 0.6}, {10, 0.6}, {74, 0.6}, {76, 0.6}, {99, 0.7}, {101, 0.7}, {120, 0.3},
+                                 {500, 0.6}, {2000, 0.7}, {5000, 0.02}, {100000, 0.6} };
+        for (double[] binomial : binomials)
+            checkBinomialSamples(random, (int)binomial[0], binomial[1], 200000);
+        double[][] btpes = { {80, 0.6}, {200, 0.5}, {1000, 0.3}, {100000, 0.6} };
+        for (double[] btpe : btpes) {
+            checkBtpeBound((int)btpe[0], btpe[1]);
+            checkBtpeSamples(random, (int)btpe[0], btpe[1], 5000000);
+        }
+
+        int[][] originalPairs = { {1, 1}, {5, 3}, {40, 60}, {100, 90}, {400, 380} };
+        for (int[] pair : originalPairs)
+            checkOriginalSamples(random, pair[0], pair[1], 200000);
+
+        checkContinualExpectations(100);
+        for (int[] pair : originalPairs)
+            checkOriginalExpectations(random, pair[0], pair[1], 200000);
+        checkBatchDeterminism(FightMode.CONTINUAL_1_1_A60_D70_SAMPLED, 20000);
+        checkBatchDeterminism(FightMode.ORIGINAL_A60_D70, 20000);
+
+        System.out.println(failed ? "FAILED" : "OK");
+        if (failed) System.exit(1);
+    }
+
+    // ========
+    // CONTINUAL
+    // ========
+
+    /**
+     * Outcome distribution of the strike-by-strike fight, [0..A-1] attacker wins losing k, [A..A+D-1] defender wins killing j.
+     * Backward over the states (attackers lost, defenders lost); a round where nobody dies keeps the state.
+     */
+    static double[] continualReference(int a, int d, double p, double q) {
+        double none = (1 - p) * (1 - q), onlyDefender = p * (1 - q), onlyAttacker = (1 - p) * q, both = p * q;
+        // h[i][j][outcome] would be too large, so go outcome by outcome
+        double[] result = new double[a + d];
+        double[][] h = new double[a + 1][d + 1];
+        for (int outcome = 0; outcome < a + d; ++outcome) {
+            for (int i = a; i >= 0; --i)
+                for (int j = d; j >= 0; --j) {
+                    if (i >= a || j >= d) {
+                        // terminal, post-processed
+                        FightResult r = new FightResult();
+                        r.attackersDestroyed = i;
+                        r.defendersDestroyed = j;
+                        r.postProcessFightResult(a, d);
+                        int index = r.winner == FightSide.ATTACKER ? r.attackersDestroyed : a + r.defendersDestroyed;
+                        h[i][j] = index == outcome ? 1 : 0;
+                        continue;
+                    }
+                    h[i][j] = (h[i][j + 1] * onlyDefender + h[i + 1][j] * onlyAttacker + h[i + 1][j + 1] * both) / (1 - none);
+                }
+            result[outcome] = h[0][0];
+        }
+        return result;
+    }
+
+    private static void checkContinualDistribution(ContinualFightSampler sampler, int allUpTo, int[][] pairs) {
+        double p = sampler.getDefenderDestroyedChance(), q = sampler.getAttackerDestroyedChance();
+        double maxError = 0;
+        int fights = 0;
+        for (int a = 1; a <= allUpTo; ++a)
+            for (int d = 1; d <= allUpTo; ++d) {
+                maxError = Math.max(maxError, continualError(sampler, a, d, p, q));
+                ++fights;
+            }
+        for (int[] pair : pairs) {
+            maxError = Math.max(maxError, continualError(sampler, pair[0], pair[1], p, q));
+            ++fights;
+        }
+        report(String.format("continual p=%.2f q=%.2f distribution of %d fights: max error %.3e", p, q, fights, maxError),
+               maxError <= MAX_ERROR);
+    }
+
+    private static double continualError(ContinualFightSampler sampler, int a, int d, double p, double q) {
+        double[] reference = continualReference(a, d, p, q);
+        double error = 0, total = 0;
+        for (int k = 0; k < a; ++k) {
+            double probability = sampler.probability(a, d, FightSide.ATTACKER, k);
+            error = Math.max(error, Math.abs(probability - reference[k]));
+            total += probability;
+        }
+        for (int j = 0; j < d; ++j) {
+            double probability = sampler.probability(a, d, FightSide.DEFENDER, j);
+            error = Math.max(error, Math.abs(probability - reference[a + j]));
+            total += probability;
+        }
+        return Math.max(error, Math.abs(total - 1));
+    }
+
+    private static void checkContinualSamples(ContinualFightSampler sampler, Random random, int a, int d, int samples) {
+        long[] loop = new long[a + d];
+        long[] sampled = new long[a + d];
+        for (int s = 0; s < samples; ++s) {
+            FightResult r = GameState.doContinualAttack(random, a, d, sampler.getDefenderDestroyedChance(), sampler.getAttackerDestroyedChance());
+            ++loop[r.winner == FightSide.ATTACKER ? r.attackersDestroyed : a + r.defendersDestroyed];
+            r = sampler.sample(random, a, d);
+            ++sampled[r.winner == FightSide.ATTACKER ? r.attackersDestroyed : a + r.defendersDestroyed];
+        }
+        checkSamples(String.format("continual %d vs %d", a, d), loop, sampled);
+    }
+
+    // ========
+    // ORIGINAL
+    // ========
+
+    private static void checkBinomialSamples(Random random, int n, double p, int samples) {
+        double[] pmf = binomialPmf(n, p);
+        long[] counts = new long[n + 1];
+        for (int s = 0; s < samples; ++s)
+            ++counts[BinomialSampler.sample(random, n, p)];
+        checkDistribution(String.format("binomial n=%d p=%.2f", n, p), pmf, counts, samples);
+    }
+
+    /**
+     * {@link BinomialSampler#logRatio} against the exact log(f(y) / f(m)) summed term by term, over y within
+     * 5 standard deviations of the mode (BTPE uses it for |y - m| &gt; 20).
+     */
+    private static void checkBtpeBound(int n, double p) {
+        double r = Math.min(p, 1 - p), q = 1 - r;
+        int m = (int)Math.floor(n * r + r);
+        int spread = (int)Math.ceil(5 * Math.sqrt(n * r * q));
+        double maxError = 0;
+        double exact = 0;
+        for (int y = m + 1; y <= Math.min(n, m + spread); ++y) {
+            exact += Math.log((double)(n - y + 1) / y * r / q);
+            maxError = Math.max(maxError, Math.abs(BinomialSampler.logRatio(n, r, m, y) - exact));
+        }
+        exact = 0;
+        for (int y = m - 1; y >= Math.max(0, m - spread); --y) {
+            exact -= Math.log((double)(n - y) / (y + 1) * r / q);
+            maxError = Math.max(maxError, Math.abs(BinomialSampler.logRatio(n, r, m, y) - exact));
+        }
+        report(String.format("BTPE bound n=%d p=%.2f against exact log mass ratio: max error %.3e", n, p, maxError), maxError <= 1e-8);
+    }
+
+    /**
+     * Largest deviation of any bin (and of the cumulative counts) from the exact binomial, in standard deviations.
+     */
+    private static void checkBtpeSamples(Random random, int n, double p, int samples) {
+        double[] pmf = binomialPmf(n, p);
+        long[] counts = new long[n + 1];
+        for (int s = 0; s < samples; ++s)
+            ++counts[BinomialSampler.sample(random, n, p)];
+        double maxZ = 0, cdf = 0;
+        long cumulative = 0;
+        for (int k = 0; k <= n; ++k) {
+            double e = pmf[k] * samples;
+            if (e >= 10) maxZ = Math.max(maxZ, Math.abs(counts[k] - e) / Math.sqrt(e * (1 - pmf[k])));
+            cdf += pmf[k];
+            cumulative += counts[k];
+            double c = Math.min(cdf, 1);
+            if (c * samples >= 10 && (1 - c) * samples >= 10)
+                maxZ = Math.max(maxZ, Math.abs(cumulative - c * samples) / Math.sqrt(samples * c * (1 - c)));
+        }
+        checkDistribution(String.format("BTPE binomial n=%d p=%.2f, %d samples", n, p, samples), pmf, counts, samples);
+        report(String.format("BTPE binomial n=%d p=%.2f, %d samples: max bin deviation %.2f sd", n, p, samples, maxZ), maxZ < 5.5);
+    }
+
+    private static double[] binomialPmf(int n, double p) {
+        double[] pmf = new double[n + 1];
+        double log = n * Math.log(1 - p);
+        for (int k = 0; k <= n; ++k) {
+            if (k > 0) log += Math.log((double)(n - k + 1) / k * p / (1 - p));
+            pmf[k] = Math.exp(log);
+        }
+        return pmf;
+    }
+
+    private static void checkOriginalSamples(Random random, int a, int d, int samples) {
+        long[] loop = new long[a + d];
+        long[] sampled = new long[a + d];
+        for (int s = 0; s < samples; ++s) {
+            FightResult r = GameState.doOriginalAttack(random, a, d, 0.6, 0.7);
+            ++loop[r.winner == FightSide.ATTACKER ? r.attackersDestroyed : a + r.defendersDestroyed];
+            r = GameState.doOriginalAttackSampled(random, a, d, 0.6, 0.7);
+            ++sampled[r.winner == FightSide.ATTACKER ? r.attackersDestroyed : a + r.defendersDestroyed];
+        }
+        checkSamples(String.format("original %d vs %d", a, d), loop, sampled);
+    }
+
+    // ========
+    // BATCH
+    // ========
+
+    private static void checkContinualExpectations(int allUpTo) {
+        int count = allUpTo * allUpTo;
+        int[] attackers = new int[count], defenders = new int[count];
+        for (int i = 0; i < count; ++i) {
+            attackers[i] = 1 + i / allUpTo;
+            defenders[i] = 1 + i % allUpTo;
+        }
+        double[] win = new double[count], attackersDestroyed = new double[count], defendersDestroyed = new double[count];
+        FightBatch.expect(FightMode.CONTINUAL_1_1_A60_D70, attackers, defenders, win, attackersDestroyed, defendersDestroyed, null);
+
+        ContinualFightSampler sampler = ContinualFightSampler.A60_D70;
+        double maxError = 0;
+        for (int i = 0; i < count; ++i) {
+            int a = attackers[i], d = defenders[i];
+            double w = 0, ea = 0, ed = 0;
+            for (int k = 0; k < a; ++k) {
+                double probability = sampler.probability(a, d, FightSide.ATTACKER, k);
+                w += probability;
+                ea += k * probability;
+                ed += d * probability;
+            }
+            for (int j = 0; j < d; ++j) {
+                double probability = sampler.probability(a, d, FightSide.DEFENDER, j);
+                ea += a * probability;
+                ed += j * probability;
+            }
+            maxError = Math.max(maxError, Math.abs(w - win[i]));
+            maxError = Math.max(maxError, Math.abs(ea - attackersDestroyed[i]) / a);
+            maxError = Math.max(maxError, Math.abs(ed - defendersDestroyed[i]) / d);
+        }
+        report(String.format("continual expectations of %d fights: max error %.3e", count, maxError), maxError <= MAX_ERROR);
+    }
+
+    private static void checkOriginalExpectations(Random random, int a, int d, int samples) {
+        double[] win = new double[1], attackersDestroyed = new double[1], defendersDestroyed = new double[1];
+        FightBatch.expect(FightMode.ORIGINAL_A60_D70, new int[] { a }, new int[] { d }, win, attackersDestroyed, defendersDestroyed, null);
+
+        double w = 0, w2 = 0, ea = 0, ea2 = 0, ed = 0, ed2 = 0;
+        for (int s = 0; s < samples; ++s) {
+            FightResult r = GameState.doOriginalAttack(random, a, d, 0.6, 0.7);
+            double x = r.winner == FightSide.ATTACKER ? 1 : 0, y = r.attackersDestroyed, z = Math.min(r.defendersDestroyed, d);
+            w += x; w2 += x * x;
+            ea += y; ea2 += y * y;
+            ed += z; ed2 += z * z;
+        }
+        double z = Math.max(zScore(w, w2, samples, win[0]),
+                   Math.max(zScore(ea, ea2, samples, attackersDestroyed[0]), zScore(ed, ed2, samples, defendersDestroyed[0])));
+        report(String.format("original %d vs %d expectations against sample means: max |z| = %.2f", a, d, z), z < 5);
+    }
+
+    private static double zScore(double sum, double sumSquares, int samples, double expected) {
+        double mean = sum / samples;
+        double variance = Math.max(sumSquares / samples - mean * mean, 1e-12);
+        return Math.abs(mean - expected) / Math.sqrt(variance / samples);
+    }
+
+    private static void checkBatchDeterminism(FightMode mode, int count) {
+        Random random = new Random(count);
+        int[] attackers = new int[count], defenders = new int[count];
+        for (int i = 0; i < count; ++i) {
+            attackers[i] = 1 + random.nextInt(60);
+            defenders[i] = 1 + random.nextInt(60);
+        }
+        int[][] results = new int[4][count];
+        FightBatch.sample(mode.getResolver(), new SplitMixRandom(7), attackers, defenders, results[0], results[1], null);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            FightBatch.sample(mode.getResolver(), new SplitMixRandom(7), attackers, defenders, results[2], results[3], pool);
+        } finally {
+            pool.shutdown();
+        }
+        report(String.format("%s batch of %d fights: parallel equals sequential", mode, count),
+               Arrays.equals(results[0], results[2]) && Arrays.equals(results[1], results[3]));
+    }
+
+    // ========
+    // UTILS
+    // ========
+
+    /**
+     * Chi-square goodness of fit of 'counts' to the distribution 'pmf'; bins with less than 10 expected hits are merged.
+     */
+    static void checkDistribution(String what, double[] pmf, long[] counts, int samples) {
+        double chi = 0;
+        int bins = 0;
+        double e = 0;
+        long o = 0;
+        for (int i = 0; i < pmf.length; ++i) {
+            e += pmf[i] * samples;
+            o += counts[i];
+            if (e < 10 && i < pmf.length - 1) continue;
+            chi += (o - e) * (o - e) / Math.max(e, 1e-300);
+            ++bins;
+            e = 0;
+            o = 0;
+        }
+        report(what, chi, Math.max(1, bins - 1));
+    }
+
+    /**
+     * Two-sample chi-square test of equal distributions; bins with less than 10 expected hits are merged.
+     */
+    static void checkSamples(String what, long[] expected, long[] actual) {
+        double n1 = 0, n2 = 0;
+        for (int i = 0; i < expected.length; ++i) {
+            n1 += expected[i];
+            n2 += actual[i];
+        }
+        double chi = 0;
+        int bins = 0;
+        long e = 0, o = 0;
+        for (int i = 0; i < expected.length; ++i) {
+            e += expected[i];
+            o += actual[i];
+            if (e + o < 20 && i < expected.length - 1) continue;
+            double k1 = Math.sqrt(n2 / n1), k2 = Math.sqrt(n1 / n2);
+            chi += (k1 * e - k2 * o) * (k1 * e - k2 * o) / (e + o);
+            ++bins;
+            e = 0;
+            o = 0;
+        }
+        report(what, chi, Math.max(1, bins - 1));
+    }
+
+    private static void report(String what, double chi, int dof) {
+        // Wilson-Hilferty: chi^2/dof is approximately normal with mean 1 - 2/(9 dof) and variance 2/(9 dof)
+        double z = (Math.cbrt(chi / dof) - (1 - 2.0 / (9 * dof))) / Math.sqrt(2.0 / (9 * dof));
+        report(String.format("%s: chi2 %.1f for %d dof (z = %.2f)", what, chi, dof, z), z < 4);
+    }
+
+    private static void report(String line, boolean ok) {
+        System.out.println((ok ? "[ OK ] " : "[FAIL] ") + line);
+        if (!ok) failed = true;
+    }
+
+}
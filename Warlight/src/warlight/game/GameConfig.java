@@ -1,5 +1,7 @@
 package warlight.game;
 
+import warlight.game.world.MapLoader;
+
 public class GameConfig implements Cloneable {
     
     /**
@@ -15,6 +17,23 @@ public class GameConfig implements Cloneable {
     
     public FightMode fight = FightMode.CONTINUAL_1_1_A60_D70;
     
+    /**
+     * Name of a {@link FightResolvers registered} {@link FightResolver} that resolves the fights instead of {@link #fight}.
+     * Null => the resolver of {@link #fight}.
+     */
+    public String fightResolver = null;
+    
+    /**
+     * Random number generator of the game; only {@link RandomMode#REPLAY} replays games recorded before it existed.
+     */
+    public RandomMode random = RandomMode.REPLAY;
+    
+    /**
+     * Path to a map definition file (see {@link MapLoader}).
+     * Null => the standard map of {@link warlight.game.world.WorldRegion}s.
+     */
+    public String map = null;
+    
     public static GameConfig fromString(String line) {
         GameConfig result = new GameConfig();
         
@@ -25,17 +44,39 @@ public class GameConfig implements Cloneable {
         result.startingArmies = Integer.parseInt(parts[2]);
         result.maxGameRounds = Integer.parseInt(parts[3]);
         result.fight = FightMode.valueOf(parts[4]);
+        if (parts.length > 5 && !parts[5].isEmpty())
+            result.map = parts[5];
+        if (parts.length > 6)
+            result.random = RandomMode.valueOf(parts[6]);
+        if (parts.length > 7 && !parts[7].isEmpty())
+            result.fightResolver = parts[7];
 
         return result;
     }
 
     public String getCSVHeader() {
-        return "seed;fullyObservable;startingArmies;maxGameRounds;fightMode";         
+        return "seed;fullyObservable;startingArmies;maxGameRounds;fightMode;map;random;fightResolver";         
     }
     
     public String getCSV() {
         return seed + ";" + fullyObservableGame + ";" +
-               startingArmies + ";" + maxGameRounds + ";" + fight;
+               startingArmies + ";" + maxGameRounds + ";" + fight + ";" +
+               (map == null ? "" : map) + ";" + random + ";" +
+               (fightResolver == null ? "" : fightResolver);
+    }
+    
+    /**
+     * @return topology of the map the game is played on
+     */
+    public MapTopology getMapTopology() {
+        return map == null ? MapTopology.WORLD : MapLoader.load(map);
+    }
+    
+    /**
+     * @return resolver of the fights of the game
+     */
+    public FightResolver getFightResolver() {
+        return fightResolver == null ? fight.getResolver() : FightResolvers.get(fightResolver);
     }
     
     public String asString() {
@@ -18,41 +18,117 @@
 package warlight.game;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
-import warlight.game.world.WorldContinent;
 import warlight.game.world.WorldRegion;
 
 public class GameMap implements Cloneable {
     
-    public ArrayList<Region> regions;  // maps (id - 1) -> Region
-    public ArrayList<Continent> continents;  // maps (id - 1) -> Continent
+    /**
+     * Highest player number a Region may be owned by; 0 stands for neutral.
+     */
+    public static final int MAX_PLAYER = 2;
+    
+    final MapTopology topology;  // shared by all clones
+    
+    // Owners and armies of Regions are stored in pages of PAGE_SIZE Regions, owner and armies of the Region 'id' at
+    // pages[id >>> PAGE_BITS][2 * (id & PAGE_MASK)] and the next index. The array of pages, the pages and the counts below
+    // may be shared with maps created by fork() (copy-on-write): a map writes into any of them only if it copied it
+    // itself in its current epoch, and forking starts a new epoch of both maps, so neither writes into what they share.
+    static final int PAGE_BITS = 3;
+    static final int PAGE_SIZE = 1 << PAGE_BITS;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+    
+    int[][] pages;
+    long[] pageEpochs;  // maps page -> epoch in which this map copied it, null until it copies the first one
+    long pagesEpoch;  // epoch in which this map copied the array 'pages'
+    long countsEpoch;  // epoch in which this map copied 'counts' and 'ownerMasks'
+    long epoch;
+    
+    // counts kept in sync by setOwner() / setArmies(), at these offsets of 'counts'
+    static final int REGIONS_OWNED = 0;  // + player -> number of Regions he owns
+    static final int ARMIES_OWNED = MAX_PLAYER + 1;  // + player -> number of armies on his Regions
+    static final int CONTINENT_REWARDS_OWNED = 2 * (MAX_PLAYER + 1);  // + player -> sum of rewards of Continents he fully owns
+    static final int CONTINENT_OWNERS = 3 * (MAX_PLAYER + 1);  // + continent id -> player fully owning the Continent, or 0
+    final int continentRegionsOwned;  // + continent id * (MAX_PLAYER + 1) + player -> number of its Regions he owns
+    int[] counts;
+    long[] ownerMasks;  // maps player * topology.maskWords + word -> bitmask of Regions he owns
+    
+    ZobristKeys hashKeys;  // shared by all clones
+    long hash;  // XOR of hashKeys.region() of all Regions, kept in sync by setOwner() / setArmies()
+    
+    // undo journal, see GameState#setJournaling(boolean); not copied by clone()
+    boolean journaling;
+    int[] journal;  // triples (id, old owner, old armies) of every change
+    int journalSize;
+    
+    // cached RegionSets of every player, refilled when asked for after ownershipVersions[player] changed
+    long[] ownershipVersions;  // maps player -> number of changes of his ownership, null until the first one; not copied by clone()
+    private RegionSet[] ownedSets;
+    private RegionSet[] visibleSets;
+    private RegionSet[] frontierSets;
+    
+    // Region and Continent objects are just views over the arrays above,
+    // they are created lazily so cloning the map copies only the arrays.
+    private Region[] regionViews;
+    private Continent[] continentViews;
+    private ArrayList<Region> regions;
+    private ArrayList<Continent> continents;
     
     public GameMap()
     {
-        this.regions = new ArrayList<Region>();
-        this.continents = new ArrayList<Continent>();
+        this(MapTopology.WORLD);
     }
     
-    /**
-     * add a Region to the map
-     * @param region : Region to be added
-     */
-    public void add(Region region)
+    public GameMap(MapTopology topology)
     {
-        if (region.getId() != regions.size() + 1)
-            throw new Error("regions out of order");
-        regions.add(region);
+        this.topology = topology;
+        int pageCount = (topology.regionCount >>> PAGE_BITS) + 1;
+        this.pages = new int[pageCount][2 * PAGE_SIZE];
+        this.epoch = 1;
+        this.pageEpochs = new long[pageCount];
+        Arrays.fill(pageEpochs, epoch);
+        this.pagesEpoch = epoch;
+        this.countsEpoch = epoch;
+        this.continentRegionsOwned = CONTINENT_OWNERS + topology.continentCount + 1;
+        this.counts = new int[continentRegionsOwned + (topology.continentCount + 1) * (MAX_PLAYER + 1)];
+        this.counts[REGIONS_OWNED] = topology.regionCount;
+        for (int c = 1; c <= topology.continentCount; ++c) {
+            this.counts[continentRegionsOwned + c * (MAX_PLAYER + 1)] = topology.continentRegions[c].length;
+            this.counts[CONTINENT_REWARDS_OWNED] += topology.continentRewards[c];
+        }
+        this.ownerMasks = new long[(MAX_PLAYER + 1) * topology.maskWords];
+        for (int id = 1; id <= topology.regionCount; ++id)
+            this.ownerMasks[id >>> 6] |= 1L << id;
+        setHashKeys(ZobristKeys.EXACT);
     }
     
-    /**
-     * add a Continent to the map
-     * @param continent : Continent to be added
-     */
-    public void add(Continent continent)
+    private GameMap(GameMap map, boolean fork)
     {
-        if (continent.getId() != continents.size() + 1)
-            throw new Error("continents out of order");
-        continents.add(continent);
+        this.topology = map.topology;
+        this.continentRegionsOwned = map.continentRegionsOwned;
+        this.epoch = 1;
+        if (fork) {
+            // everything shared, older epochs (0) mark it as not copied yet
+            this.pages = map.pages;
+            this.counts = map.counts;
+            this.ownerMasks = map.ownerMasks;
+            // the parent has to copy before writing too
+            map.epoch += 1;
+        } else {
+            int pageCount = map.pages.length;
+            this.pages = new int[pageCount][];
+            for (int page = 0; page < pageCount; ++page)
+                this.pages[page] = map.pages[page].clone();
+            this.pageEpochs = new long[pageCount];
+            Arrays.fill(pageEpochs, epoch);
+            this.pagesEpoch = epoch;
+            this.countsEpoch = epoch;
+            this.counts = map.counts.clone();
+            this.ownerMasks = map.ownerMasks.clone();
+        }
+        this.hashKeys = map.hashKeys;
+        this.hash = map.hash;
     }
     
     /**
@@ -60,32 +136,35 @@ public class GameMap implements Cloneable {
      */
     @Override
     public GameMap clone() {
-        GameMap newMap = new GameMap();
-        for(Continent sr : continents) //copy continents
-        {
-            Continent newContinent = new Continent(
-                WorldContinent.forId(sr.getId()), sr.getOwner());
-            newMap.add(newContinent);
-        }
-        for(Region r : regions) //copy regions
-        {
-            Region newRegion = new Region(WorldRegion.forId(r.getId()),
-                    newMap.getContinent(r.getContinent().getId()), r.getOwner(), r.getArmies());
-            newMap.add(newRegion);
-        }
-        for(Region r : regions) //add neighbors to copied regions
-        {
-            Region newRegion = newMap.getRegion(r.getId());
-            for(Region neighbor : r.getNeighbors())
-                newRegion.addNeighbor(newMap.getRegion(neighbor.getId()));
-        }
-        return newMap;
+        return new GameMap(this, false);
+    }
+    
+    /**
+     * Cheaper alternative to {@link #clone()}: the new map shares owners and armies of all Regions and the per-player /
+     * per-Continent counts with this one. Each map copies a page of {@link #PAGE_SIZE} Regions when it writes into it
+     * for the first time (and the array of pages and the counts on its first write at all), so forking costs O(1)
+     * and a child that changes only a few Regions copies only a few pages.
+     * Writes into either map are never visible in the other one.
+     * 
+     * Forking modifies bookkeeping of this map, so do not fork a map that is being used by another thread.
+     */
+    public GameMap fork() {
+        return new GameMap(this, true);
+    }
+    
+    public MapTopology getTopology() {
+        return topology;
     }
     
     /**
      * @return : the list of all Regions in this map
      */
     public ArrayList<Region> getRegions() {
+        if (regions == null) {
+            regions = new ArrayList<Region>(topology.regionCount);
+            for (int id = 1; id <= topology.regionCount; ++id)
+                regions.add(getRegion(id));
+        }
         return regions;
     }
     
@@ -93,6 +172,11 @@ public class GameMap implements Cloneable {
      * @return : the list of all Continents in this map
      */
     public ArrayList<Continent> getContinents() {
+        if (continents == null) {
+            continents = new ArrayList<Continent>(topology.continentCount);
+            for (int id = 1; id <= topology.continentCount; ++id)
+                continents.add(getContinent(id));
+        }
         return continents;
     }
     
@@ -102,8 +186,16 @@ public class GameMap implements Cloneable {
      */
     public Region getRegion(int id)
     {
-        if (1 <= id && id <= regions.size())
-            return regions.get(id - 1);
+        if (1 <= id && id <= topology.regionCount) {
+            if (regionViews == null)
+                regionViews = new Region[topology.regionCount + 1];
+            Region region = regionViews[id];
+            if (region == null) {
+                region = new Region(this, id);
+                regionViews[id] = region;
+            }
+            return region;
+        }
         
         System.err.println("Could not find region with id " + id);
         return null;
@@ -119,51 +211,242 @@ public class GameMap implements Cloneable {
      */
     public Continent getContinent(int id)
     {
-        if (1 <= id && id <= continents.size())
-            return continents.get(id - 1);
+        if (1 <= id && id <= topology.continentCount) {
+            if (continentViews == null)
+                continentViews = new Continent[topology.continentCount + 1];
+            Continent continent = continentViews[id];
+            if (continent == null) {
+                continent = new Continent(this, id);
+                continentViews[id] = continent;
+            }
+            return continent;
+        }
 
         System.err.println("Could not find continent with id " + id);
         return null;
     }
     
+    public int getOwner(int id) {
+        return pages[id >>> PAGE_BITS][(id & PAGE_MASK) << 1];
+    }
+    
+    public int getArmies(int id) {
+        return pages[id >>> PAGE_BITS][((id & PAGE_MASK) << 1) + 1];
+    }
+    
+    public void setOwner(int id, int owner) {
+        if (owner < 0 || owner > MAX_PLAYER)
+            throw new IllegalArgumentException("invalid owner " + owner + " of region " + id);
+        int page = id >>> PAGE_BITS, offset = (id & PAGE_MASK) << 1;
+        int oldOwner = pages[page][offset];
+        if (oldOwner == owner)
+            return;
+        if (journaling)
+            record(id);
+        if (pageEpochs == null || pageEpochs[page] != epoch)
+            copyPage(page);
+        counts[REGIONS_OWNED + oldOwner] -= 1;
+        counts[REGIONS_OWNED + owner] += 1;
+        if (ownershipVersions == null)
+            ownershipVersions = new long[MAX_PLAYER + 1];
+        ownershipVersions[oldOwner] += 1;
+        ownershipVersions[owner] += 1;
+        int armies = pages[page][offset + 1];
+        counts[ARMIES_OWNED + oldOwner] -= armies;
+        counts[ARMIES_OWNED + owner] += armies;
+        pages[page][offset] = owner;
+        
+        int bucket = hashKeys.bucket(armies);
+        hash ^= hashKeys.region(id, oldOwner, bucket) ^ hashKeys.region(id, owner, bucket);
+        
+        int word = id >>> 6;
+        ownerMasks[oldOwner * topology.maskWords + word] &= ~(1L << id);
+        ownerMasks[owner * topology.maskWords + word] |= 1L << id;
+        
+        int continentId = topology.continentOf[id];
+        int base = continentRegionsOwned + continentId * (MAX_PLAYER + 1);
+        counts[base + oldOwner] -= 1;
+        counts[base + owner] += 1;
+        if (counts[base + owner] == topology.continentRegions[continentId].length)
+            setContinentOwner(continentId, owner);
+        else if (counts[CONTINENT_OWNERS + continentId] == oldOwner)
+            setContinentOwner(continentId, 0);
+    }
+    
+    public void setArmies(int id, int armies) {
+        int page = id >>> PAGE_BITS, offset = (id & PAGE_MASK) << 1;
+        int oldArmies = pages[page][offset + 1];
+        if (oldArmies == armies)
+            return;
+        if (journaling)
+            record(id);
+        if (pageEpochs == null || pageEpochs[page] != epoch)
+            copyPage(page);
+        int owner = pages[page][offset];
+        counts[ARMIES_OWNED + owner] += armies - oldArmies;
+        int oldBucket = hashKeys.bucket(oldArmies), bucket = hashKeys.bucket(armies);
+        if (oldBucket != bucket)
+            hash ^= hashKeys.region(id, owner, oldBucket) ^ hashKeys.region(id, owner, bucket);
+        pages[page][offset + 1] = armies;
+    }
+    
+    /**
+     * Copies the page (and what else is shared) before this map writes into it.
+     */
+    private void copyPage(int page) {
+        if (pagesEpoch != epoch) {
+            pages = pages.clone();
+            pagesEpoch = epoch;
+        }
+        if (pageEpochs == null)
+            pageEpochs = new long[pages.length];
+        pages[page] = pages[page].clone();
+        pageEpochs[page] = epoch;
+        copyCounts();
+    }
+    
+    private void copyCounts() {
+        if (countsEpoch == epoch)
+            return;
+        counts = counts.clone();
+        ownerMasks = ownerMasks.clone();
+        countsEpoch = epoch;
+    }
+    
+    private void record(int id) {
+        if (journal == null)
+            journal = new int[3 * 64];
+        else if (journalSize + 3 > journal.length)
+            journal = Arrays.copyOf(journal, journal.length * 2);
+        journal[journalSize++] = id;
+        journal[journalSize++] = getOwner(id);
+        journal[journalSize++] = getArmies(id);
+    }
+    
+    /**
+     * Reverts all changes recorded in the journal after it had 'mark' entries.
+     */
+    void undo(int mark) {
+        boolean wasJournaling = journaling;
+        journaling = false;
+        while (journalSize > mark) {
+            journalSize -= 3;
+            int id = journal[journalSize];
+            setOwner(id, journal[journalSize + 1]);
+            setArmies(id, journal[journalSize + 2]);
+        }
+        journaling = wasJournaling;
+    }
+    
+    private void setContinentOwner(int continentId, int player)
+    {
+        int oldPlayer = counts[CONTINENT_OWNERS + continentId];
+        if (oldPlayer == player)
+            return;
+        counts[CONTINENT_REWARDS_OWNED + oldPlayer] -= topology.continentRewards[continentId];
+        counts[CONTINENT_REWARDS_OWNED + player] += topology.continentRewards[continentId];
+        counts[CONTINENT_OWNERS + continentId] = player;
+    }
+    
+    /**
+     * Recounts ownership of the given continent from scratch; {@link #setOwner(int, int)} keeps it up to date
+     * incrementally, so there is normally no need to call this.
+     */
+    void computeContinentOwner(int continentId)
+    {
+        copyCounts();
+        int base = continentRegionsOwned + continentId * (MAX_PLAYER + 1);
+        for (int player = 0; player <= MAX_PLAYER; ++player)
+            counts[base + player] = 0;
+        
+        int[] members = topology.continentRegions[continentId];
+        int player = getOwner(members[0]);
+        for (int id : members)
+        {
+            counts[base + getOwner(id)] += 1;
+            if (player != getOwner(id))
+                player = 0;
+        }
+        setContinentOwner(continentId, player);
+    }
+    
+    /**
+     * @return sum of rewards of all Continents fully owned by 'player'
+     */
+    public int continentRewardsOwned(int player) {
+        if (player < 0 || player > MAX_PLAYER)
+            return 0;
+        return counts[CONTINENT_REWARDS_OWNED + player];
+    }
+    
+    /**
+     * @return number of Regions of the given Continent owned by 'player'
+     */
+    public int numberRegionsOwned(int continentId, int player) {
+        if (player < 0 || player > MAX_PLAYER)
+            return 0;
+        return counts[continentRegionsOwned + continentId * (MAX_PLAYER + 1) + player];
+    }
+    
+    /**
+     * @return Zobrist hash of owners and armies of all Regions, see {@link ZobristKeys}
+     */
+    public long getHash() {
+        return hash;
+    }
+    
+    public ZobristKeys getHashKeys() {
+        return hashKeys;
+    }
+    
+    /**
+     * Changes keys used by {@link #getHash()} (e.g. to bucket army counts) and rehashes the map.
+     * Clones made afterwards use the same keys.
+     */
+    public void setHashKeys(ZobristKeys hashKeys) {
+        this.hashKeys = hashKeys;
+        this.hash = 0;
+        for (int id = 1; id <= topology.regionCount; ++id)
+            hash ^= hashKeys.region(id, getOwner(id), hashKeys.bucket(getArmies(id)));
+    }
+    
     public String getMapString()
     {
-        String mapString = "";
-        for(Region region : regions)
+        StringBuilder mapString = new StringBuilder(topology.regionCount * 10);
+        for (int id = 1; id <= topology.regionCount; ++id)
         {
-            mapString = mapString.concat(region.getId() + ";" + region.getOwner() + ";" + region.getArmies() + " ");
+            mapString.append(id).append(';').append(getOwner(id)).append(';').append(getArmies(id)).append(' ');
         }
-        return mapString;
+        return mapString.toString();
     }
     
     public int numberRegionsOwned(int player) {
-        int n = 0;
-        
-        for (Region r: regions)
-            if (r.getOwner() == player)
-                n += 1;
-        
-        return n;
+        if (player < 0 || player > MAX_PLAYER)
+            return 0;
+        return counts[REGIONS_OWNED + player];
     }
     
     public int numberArmiesOwned(int player) {
-        int n = 0;
-        
-        for (Region r: regions)
-            if (r.getOwner() == player)
-                n += r.getArmies();
-        
-        return n;
+        if (player < 0 || player > MAX_PLAYER)
+            return 0;
+        return counts[ARMIES_OWNED + player];
     }
 
     //return all regions owned by given player
     public ArrayList<Region> ownedRegionsByPlayer(int player)
     {
-        ArrayList<Region> ownedRegions = new ArrayList<Region>();
+        if (player < 0 || player > MAX_PLAYER)
+            return new ArrayList<Region>();
+        ArrayList<Region> ownedRegions = new ArrayList<Region>(counts[REGIONS_OWNED + player]);
         
-        for(Region region : this.getRegions())
-            if(region.getOwner() == player)
-                ownedRegions.add(region);
+        // walk the owner bitmask instead of all Regions, ascending by id
+        for (int word = 0; word < topology.maskWords; ++word) {
+            long owned = ownerMasks[player * topology.maskWords + word];
+            while (owned != 0) {
+                ownedRegions.add(getRegion((word << 6) + Long.numberOfTrailingZeros(owned)));
+                owned &= owned - 1;
+            }
+        }
 
         return ownedRegions;
     }
@@ -174,15 +457,191 @@ public class GameMap implements Cloneable {
     {
         ArrayList<Region> visibleRegions = new ArrayList<Region>();
         ArrayList<Region> ownedRegions = ownedRegionsByPlayer(player);
+        long[] visible = new long[topology.maskWords];
         
         visibleRegions.addAll(ownedRegions);
+        for (Region region : ownedRegions)
+            visible[region.getId() >>> 6] |= 1L << region.getId();
         
         for(Region region : ownedRegions)    
-            for(Region neighbor : region.getNeighbors())
-                if(!visibleRegions.contains(neighbor))
-                    visibleRegions.add(neighbor);
+            for(int neighbor : topology.neighbors[region.getId()])
+                if ((visible[neighbor >>> 6] & (1L << neighbor)) == 0) {
+                    visible[neighbor >>> 6] |= 1L << neighbor;
+                    visibleRegions.add(getRegion(neighbor));
+                }
 
         return visibleRegions;
     }
     
+    // ==========
+    // BITBOARDS
+    // ==========
+    // Bit 'id' of a mask stands for the Region 'id', see MapTopology#getMaskWords().
+    // Single-long variants may be used only on maps that fit into one word (e.g. the standard one).
+    
+    /**
+     * @return bitmask of Regions owned by 'player'
+     */
+    public long getOwnedMask(int player) {
+        topology.checkSingleWord();
+        return ownerMasks[player];
+    }
+    
+    /**
+     * @return 'word'-th long of the bitmask of Regions owned by 'player'
+     */
+    public long getOwnedMask(int player, int word) {
+        return ownerMasks[player * topology.maskWords + word];
+    }
+    
+    /**
+     * @return bitmask of Regions 'player' can see, i.e. Regions he owns and their neighbours
+     */
+    public long getVisibleMask(int player) {
+        topology.checkSingleWord();
+        long owned = ownerMasks[player];
+        long visible = owned;
+        for (long bits = owned; bits != 0; bits &= bits - 1)
+            visible |= topology.neighborMasks[Long.numberOfTrailingZeros(bits)];
+        return visible;
+    }
+    
+    /**
+     * Fills 'result' (of length {@link MapTopology#getMaskWords()}) with the bitmask of Regions 'player' can see.
+     */
+    public void getVisibleMask(int player, long[] result) {
+        int words = topology.maskWords;
+        System.arraycopy(ownerMasks, player * words, result, 0, words);
+        for (int w = 0; w < words; ++w)
+            for (long bits = ownerMasks[player * words + w]; bits != 0; bits &= bits - 1) {
+                int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int i = 0; i < words; ++i)
+                    result[i] |= topology.neighborMasks[id * words + i];
+            }
+    }
+    
+    /**
+     * @return bitmask of Regions owned by 'player' that neighbour a Region he does not own
+     */
+    public long getFrontierMask(int player) {
+        topology.checkSingleWord();
+        long owned = ownerMasks[player];
+        long frontier = 0;
+        for (long bits = owned; bits != 0; bits &= bits - 1) {
+            int id = Long.numberOfTrailingZeros(bits);
+            if ((topology.neighborMasks[id] & ~owned) != 0)
+                frontier |= 1L << id;
+        }
+        return frontier;
+    }
+    
+    /**
+     * Fills 'result' (of length {@link MapTopology#getMaskWords()}) with the bitmask of Regions owned by 'player'
+     * that neighbour a Region he does not own.
+     */
+    public void getFrontierMask(int player, long[] result) {
+        int words = topology.maskWords;
+        int base = player * words;
+        for (int w = 0; w < words; ++w) {
+            result[w] = 0;
+            for (long bits = ownerMasks[base + w]; bits != 0; bits &= bits - 1) {
+                int id = (w << 6) + Long.numberOfTrailingZeros(bits);
+                for (int i = 0; i < words; ++i)
+                    if ((topology.neighborMasks[id * words + i] & ~ownerMasks[base + i]) != 0) {
+                        result[w] |= 1L << id;
+                        break;
+                    }
+            }
+        }
+    }
+    
+    // ===========
+    // REGION SETS
+    // ===========
+    
+    private long ownershipVersion(int player) {
+        return ownershipVersions == null ? 0 : ownershipVersions[player];
+    }
+    
+    /**
+     * @return player fully owning the Continent 'continentId', or 0
+     */
+    int getContinentOwner(int continentId) {
+        return counts[CONTINENT_OWNERS + continentId];
+    }
+    
+    /**
+     * @return cached set of Regions owned by 'player', see {@link RegionSet}
+     */
+    public RegionSet getOwnedSet(int player) {
+        if (ownedSets == null)
+            ownedSets = new RegionSet[MAX_PLAYER + 1];
+        RegionSet set = ownedSets[player];
+        if (set == null)
+            set = ownedSets[player] = new RegionSet(this);
+        if (set.version != ownershipVersion(player)) {
+            System.arraycopy(ownerMasks, player * topology.maskWords, set.mask, 0, topology.maskWords);
+            set.update(ownershipVersion(player));
+        }
+        return set;
+    }
+    
+    /**
+     * @return cached set of Regions visible to 'player' (owned by him or neighbouring those), see {@link RegionSet}
+     */
+    public RegionSet getVisibleSet(int player) {
+        if (visibleSets == null)
+            visibleSets = new RegionSet[MAX_PLAYER + 1];
+        RegionSet set = visibleSets[player];
+        if (set == null)
+            set = visibleSets[player] = new RegionSet(this);
+        if (set.version != ownershipVersion(player)) {
+            getVisibleMask(player, set.mask);
+            set.update(ownershipVersion(player));
+        }
+        return set;
+    }
+    
+    /**
+     * @return cached set of Regions owned by 'player' neighbouring a Region he does not own, see {@link RegionSet}
+     */
+    public RegionSet getFrontierSet(int player) {
+        if (frontierSets == null)
+            frontierSets = new RegionSet[MAX_PLAYER + 1];
+        RegionSet set = frontierSets[player];
+        if (set == null)
+            set = frontierSets[player] = new RegionSet(this);
+        if (set.version != ownershipVersion(player)) {
+            getFrontierMask(player, set.mask);
+            set.update(ownershipVersion(player));
+        }
+        return set;
+    }
+    
+    /**
+     * @return True if 'player' owns Region 'id' or any of its neighbours
+     */
+    public boolean isVisible(int id, int player) {
+        int words = topology.maskWords;
+        if ((ownerMasks[player * words + (id >>> 6)] & (1L << id)) != 0)
+            return true;
+        for (int w = 0; w < words; ++w)
+            if ((topology.neighborMasks[id * words + w] & ownerMasks[player * words + w]) != 0)
+                return true;
+        return false;
+    }
+    
+    /**
+     * @return True if 'player' owns every Region of the continent 'continentId'
+     */
+    public boolean ownsContinent(int player, int continentId) {
+        int words = topology.maskWords;
+        for (int w = 0; w < words; ++w) {
+            long continent = topology.continentMasks[continentId * words + w];
+            if ((ownerMasks[player * words + w] & continent) != continent)
+                return false;
+        }
+        return true;
+    }
+    
 }
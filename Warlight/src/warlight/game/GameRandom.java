@@ -0,0 +1,49 @@
+package warlight.game;
+
+import java.util.Random;
+
+/**
+ * Random number generator of a {@link GameState}, see {@link RandomMode} for the implementations.
+ * 
+ * Extends {@link Random} so that it can be passed anywhere a Random is expected (e.g. to the fight methods
+ * of {@link GameState}); implementations override {@link #next(int)} and the frequently used methods,
+ * so that the thread-safe (and slow) state handling of {@link Random} is never used.
+ * None of the implementations is thread-safe, give every thread its own generator via {@link #split()}.
+ */
+public abstract class GameRandom extends Random {
+    
+    /**
+     * AUTO-GENERATED
+     */
+    private static final long serialVersionUID = 4581290740306251235L;
+    
+    /**
+     * NOTE: {@link Random}'s constructor calls {@link #setSeed(long)} before the fields of the subclass are initialized;
+     * subclasses must not have field initializers and should call setSeed() again from their constructors.
+     */
+    protected GameRandom() {
+        super(0);
+    }
+    
+    /**
+     * Returns a new generator whose sequence is independent of the rest of this one's sequence.
+     * Advances this generator; {@link GameState#clone()} splits the generator of the cloned state.
+     */
+    public abstract GameRandom split();
+    
+    /**
+     * @return number of longs {@link #saveState(long[], int)} writes
+     */
+    public abstract int getStateSize();
+    
+    /**
+     * Writes the current position in the random sequence into into[offset .. offset + {@link #getStateSize()} - 1].
+     */
+    public abstract void saveState(long[] into, int offset);
+    
+    /**
+     * Rewinds the generator to a position previously written by {@link #saveState(long[], int)}.
+     */
+    public abstract void restoreState(long[] from, int offset);
+    
+}
@@ -14,14 +14,25 @@ public class GameState implements Cloneable {
     int turn;
     Phase phase;
     public ArrayList<Region> pickableRegions;
-    public Random random;
+    public GameRandom random;
+    
+    /**
+     * Reused by every {@link #doAttack(AttackTransferMove)}, not shared with copies.
+     */
+    private FightResult fightResult;
     GUI gui;
     
+    // undo journal, see setJournaling(boolean); frames of FRAME_SIZE longs followed by the state of the random generator
+    private static final int FRAME_SIZE = 6;
+    private static final Phase[] PHASES = Phase.values();
+    private long[] frames;
+    private int frameCount;
+    
     public static final int nrOfStartingRegions = 3;
     
     public GameState(GameConfig config, GameMap map, String[] playerNames,
                      int round, int turn, Phase phase, ArrayList<Region> pickableRegions,
-                     Random random) {
+                     GameRandom random) {
         this.config = config;
         this.map = map;
         this.playerNames = playerNames; 
@@ -36,10 +47,10 @@ public class GameState implements Cloneable {
                      ArrayList<Region> pickableRegions) {
         this(
             config != null ? config : new GameConfig(),
-            map != null ? map : makeInitMap(),
+            map != null ? map : makeInitMap(config != null ? config.getMapTopology() : MapTopology.WORLD),
             playerNames != null ? playerNames : new String[] { "Player 1", "Player 2" },
             0, 1, Phase.STARTING_REGIONS, pickableRegions,
-            (config == null || config.seed < 0) ? new Random() : new Random(config.seed));
+            config == null ? new ReplayRandom() : config.seed < 0 ? config.random.create() : config.random.create(config.seed));
 
         if (pickableRegions == null)
             initStartingRegions();
@@ -55,14 +66,26 @@ public class GameState implements Cloneable {
     
     @Override
     public GameState clone() {
-        GameMap newMap = map.clone();
+        return copy(map.clone());
+    }
+    
+    /**
+     * Like {@link #clone()}, but the map of the new state is {@link GameMap#fork() forked}:
+     * it shares Regions with this state and copies them only when either state changes them.
+     * Much cheaper when generating many children that differ in a few Regions only.
+     */
+    public GameState fork() {
+        return copy(map.fork());
+    }
+    
+    private GameState copy(GameMap newMap) {
         ArrayList<Region> newPickable = new ArrayList<Region>();
         for (Region r : pickableRegions)
             newPickable.add(newMap.getRegion(r.getId()));
         
         // If you make several clones, each will have a distinct random number sequence.
         return new GameState(config, newMap, playerNames, round, turn, phase, newPickable,
-                             new Random(random.nextInt()));
+                             random.split());
     }
 
     @Override
@@ -74,13 +97,23 @@ public class GameState implements Cloneable {
             for (int player = 1 ; player <= 2 ; ++player) {
                 sb.append("p" + player + ": ");
                 for (Region r : regionsOwnedBy(player))
-                    sb.append(r.getWorldRegion().abbrev + "=" + r.getArmies() + " ");
+                    sb.append((r.getWorldRegion() != null ? r.getWorldRegion().abbrev : r.getName()) + "=" + r.getArmies() + " ");
             }
         sb.append("]");
         return sb.toString();
     }
     
     public GameMap getMap() { return map; }
+    
+    /**
+     * 64-bit Zobrist hash of the position: owners and armies of all regions (see {@link GameMap#getHash()}),
+     * the phase and the player on turn. Round number and pickable regions are not hashed.
+     * Kept up to date incrementally, so it costs O(1); meant for transposition tables,
+     * equal hashes do not guarantee equal positions.
+     */
+    public long getHash() {
+        return map.hash ^ map.hashKeys.phase(phase) ^ map.hashKeys.turn(turn);
+    }
 
     public int getRoundNumber() {
         return round;
@@ -141,6 +174,10 @@ public class GameState implements Cloneable {
         return map.getRegion(id);
     }
 
+    private boolean isRegionId(int id) {
+        return 1 <= id && id <= map.topology.getRegionCount();
+    }
+    
     public Region region(WorldRegion region) {
         return map.getRegion(region.id);
     }
@@ -148,6 +185,14 @@ public class GameState implements Cloneable {
     public ArrayList<Region> regionsOwnedBy(int player) {
         return map.ownedRegionsByPlayer(player);
     }
+    
+    /**
+     * Allocation-free alternative to {@link #regionsOwnedBy(int)} returning a cached read-only set,
+     * see {@link RegionSet} and {@link GameMap#getVisibleSet(int)}, {@link GameMap#getFrontierSet(int)}.
+     */
+    public RegionSet regionSetOwnedBy(int player) {
+        return map.getOwnedSet(player);
+    }
         
     public ArrayList<Region> getPickableRegions() {
         return pickableRegions;
@@ -164,58 +209,88 @@ public class GameState implements Cloneable {
         if (player == 1 && round <= 1)
             armies /= 2;
         
-        for(Continent cd : map.getContinents())
-            if (cd.getOwner() == player)
-                armies += cd.getArmiesReward();
-        
-        return armies;
+        return armies + map.continentRewardsOwned(player);
+    }
+    
+    // ===========
+    // MAKE/UNMAKE
+    // ===========
+    
+    /**
+     * Turns the undo journal on/off. While it is on, every {@link #chooseRegion(Region)}, {@link #placeArmies(List)}
+     * and {@link #attackTransfer(List)} (and so every applied {@link Action}) records what it changes,
+     * and {@link #undo()} reverts the last of them exactly, including the position of {@link #random}.
+     * That allows search to run on a single GameState instance instead of cloning it for every node.
+     * Do not replace {@link #random} while the journal is on.
+     * 
+     * Turning the journal off discards everything recorded so far.
+     */
+    public void setJournaling(boolean journaling) {
+        map.journaling = journaling;
+        if (!journaling) {
+            map.journalSize = 0;
+            frameCount = 0;
+        }
+    }
+    
+    public boolean isJournaling() {
+        return map.journaling;
+    }
+    
+    /**
+     * @return number of recorded actions that can be reverted by {@link #undo()}
+     */
+    public int getJournalDepth() {
+        return frameCount;
+    }
+    
+    private void pushFrame(int pickableIndex, int pickedId) {
+        int frameSize = FRAME_SIZE + random.getStateSize();
+        if (frames == null)
+            frames = new long[frameSize * 16];
+        else if ((frameCount + 1) * frameSize > frames.length)
+            frames = Arrays.copyOf(frames, frames.length * 2);
+        
+        int f = frameCount * frameSize;
+        frames[f] = map.journalSize;
+        frames[f + 1] = phase.ordinal();
+        frames[f + 2] = turn;
+        frames[f + 3] = round;
+        frames[f + 4] = pickableIndex;
+        frames[f + 5] = pickedId;
+        random.saveState(frames, f + FRAME_SIZE);
+        ++frameCount;
+    }
+    
+    /**
+     * Reverts the last action recorded while {@link #setJournaling(boolean) journaling}.
+     */
+    public void undo() {
+        if (frameCount == 0)
+            throw new IllegalStateException("nothing to undo");
+        
+        --frameCount;
+        int f = frameCount * (FRAME_SIZE + random.getStateSize());
+        map.undo((int)frames[f]);
+        phase = PHASES[(int)frames[f + 1]];
+        turn = (int)frames[f + 2];
+        round = (int)frames[f + 3];
+        random.restoreState(frames, f + FRAME_SIZE);
+        if (frames[f + 4] >= 0)
+            pickableRegions.add((int)frames[f + 4], map.getRegion((int)frames[f + 5]));
     }
     
     public static GameMap makeInitMap()
     {
-        GameMap map = new GameMap();
-        
-        Map<WorldContinent, Continent> continents = new TreeMap<WorldContinent, Continent>(new Comparator<WorldContinent>() {
-            @Override
-            public int compare(WorldContinent o1, WorldContinent o2) {
-                return o1.id - o2.id;
-            }           
-        });
-        
-        for (WorldContinent worldContinent : WorldContinent.values()) {
-            Continent continent = new Continent(worldContinent, 0);
-            continents.put(worldContinent, continent);
-        }
-        
-        Map<WorldRegion, Region> regions = new TreeMap<WorldRegion, Region>(new Comparator<WorldRegion>() {
-            @Override
-            public int compare(WorldRegion o1, WorldRegion o2) {
-                return o1.id - o2.id;
-            }
-        });
-        
-        for (WorldRegion worldRegion : WorldRegion.values()) {
-            Region region = new Region(worldRegion, continents.get(worldRegion.worldContinent));
-            regions.put(worldRegion, region);
-        }
-        
-        for (WorldRegion regionName : WorldRegion.values()) {
-            Region region = regions.get(regionName);
-            for (WorldRegion neighbour : regionName.getForwardNeighbours()) {
-                region.addNeighbor(regions.get(neighbour));
-            }
-        }
-        
-        for (Region region : regions.values()) {
-            map.add(region);
-        }
-        
-        for (Continent continent : continents.values()) {
-            map.add(continent);
-        }
+        return makeInitMap(MapTopology.WORLD);
+    }
+    
+    public static GameMap makeInitMap(MapTopology topology)
+    {
+        GameMap map = new GameMap(topology);
 
         // Make every region neutral with 2 armies to start with
-        for(Region region : map.regions)
+        for(Region region : map.getRegions())
         {
             region.setOwner(0);
             region.setArmies(2);
@@ -229,23 +304,38 @@ public class GameState implements Cloneable {
         int regionsAdded = 0;
         
         //pick semi random regions to start with
-        for(WorldContinent continent : WorldContinent.values())
+        MapTopology topology = map.topology;
+        boolean[] picked = new boolean[topology.getRegionCount() + 1];  // instead of pickableRegions.contains(), linear in the map size
+        for(int continent = 1; continent <= topology.getContinentCount(); ++continent)
         {
-            int nrOfRegions = continent.getRegions().size();
-            while(regionsAdded < 2)
+            int[] regions = topology.getContinentRegions(continent);
+            int nrOfRegions = regions.length;
+            while(regionsAdded < Math.min(2, nrOfRegions))
             {
                 //get one random subregion from continent
                 int randomRegionId = random.nextInt(nrOfRegions);
                 
-                Region randomRegion = region(continent.getRegions().get(randomRegionId));
-                if(!pickableRegions.contains(randomRegion))
+                Region randomRegion = map.getRegion(regions[randomRegionId]);
+                if(!picked[randomRegion.getId()])
                 {
+                    picked[randomRegion.getId()] = true;
                     pickableRegions.add(randomRegion);
                     regionsAdded++;
                 }
             }
             regionsAdded = 0;
         }
+        
+        //maps with few continents: top up with random regions so that both players can pick all starting regions
+        if (topology.getRegionCount() < 2 * nrOfStartingRegions)
+            throw new IllegalArgumentException("map of " + topology.getRegionCount() + " regions is too small for " + nrOfStartingRegions + " starting regions per player");
+        while (pickableRegions.size() < 2 * nrOfStartingRegions) {
+            Region randomRegion = map.getRegion(1 + random.nextInt(topology.getRegionCount()));
+            if (!picked[randomRegion.getId()]) {
+                picked[randomRegion.getId()] = true;
+                pickableRegions.add(randomRegion);
+            }
+        }
     }
     
     public void chooseRegion(Region region) {
@@ -255,6 +345,9 @@ public class GameState implements Cloneable {
         if (!pickableRegions.contains(region))
             throw new Error("starting region is not pickable");
         
+        if (map.journaling)
+            pushFrame(pickableRegions.indexOf(region), region.getId());
+        
         region.setOwner(turn);
         pickableRegions.remove(region);
         turn = 3 - turn;
@@ -269,12 +362,19 @@ public class GameState implements Cloneable {
     {
         if (phase != Phase.PLACE_ARMIES)
             throw new Error("wrong time to place armies");
+        
+        if (map.journaling)
+            pushFrame(-1, 0);
 
         int left = armiesPerTurn(turn); 
                 
         for(PlaceArmiesMove move : moves)
         {
-            Region region = region(move.getRegion());
+            if (!isRegionId(move.getRegionId())) {
+                move.setIllegalMove(move.getRegionId() + " not a region");
+                continue;
+            }
+            Region region = map.getRegion(move.getRegionId());
             int armies = move.getArmies();
             
             if (!region.isOwnedBy(turn))
@@ -320,7 +420,26 @@ public class GameState implements Cloneable {
             this.defendersDestroyed = defendersDestroyed;
         }
         
-        protected void postProcessFightResult(int attackingArmies, int defendingArmies) {      
+        /**
+         * Clears the result so that it can be reused for another fight.
+         */
+        public void reset() {
+            winner = null;
+            attackersDestroyed = 0;
+            defendersDestroyed = 0;
+        }
+        
+        public void set(FightSide winner, int attackersDestroyed, int defendersDestroyed) {
+            this.winner = winner;
+            this.attackersDestroyed = attackersDestroyed;
+            this.defendersDestroyed = defendersDestroyed;
+        }
+        
+        /**
+         * Caps the destroyed armies to the fighting ones and decides the {@link #winner};
+         * {@link FightResolver}s call it once they have counted the losses.
+         */
+        public void postProcessFightResult(int attackingArmies, int defendingArmies) {      
             if(attackersDestroyed >= attackingArmies)
             {
                 if (defendersDestroyed >= defendingArmies)
@@ -340,6 +459,13 @@ public class GameState implements Cloneable {
     static FightResult doOriginalAttack(Random random, int attackingArmies, int defendingArmies,
                                         double defenderDestroyedChance, double attackerDestroyedChance) {
         FightResult result = new FightResult();
+        doOriginalAttack(random, attackingArmies, defendingArmies, defenderDestroyedChance, attackerDestroyedChance, result);
+        return result;
+    }
+    
+    static void doOriginalAttack(Random random, int attackingArmies, int defendingArmies,
+                                 double defenderDestroyedChance, double attackerDestroyedChance, FightResult result) {
+        result.reset();
         
         for(int t=1; t<=attackingArmies; t++) //calculate how much defending armies are destroyed
         {
@@ -354,14 +480,41 @@ public class GameState implements Cloneable {
                 result.attackersDestroyed++;
         }
         result.postProcessFightResult(attackingArmies, defendingArmies);
+    }
+    
+    /**
+     * Same outcome distribution as {@link #doOriginalAttack}: the destroyed armies are two independent binomials,
+     * sampled directly by {@link BinomialSampler}.
+     */
+    static FightResult doOriginalAttackSampled(Random random, int attackingArmies, int defendingArmies,
+                                               double defenderDestroyedChance, double attackerDestroyedChance) {
+        FightResult result = new FightResult();
+        doOriginalAttackSampled(random, attackingArmies, defendingArmies, defenderDestroyedChance, attackerDestroyedChance, result);
         return result;
     }
     
+    static void doOriginalAttackSampled(Random random, int attackingArmies, int defendingArmies,
+                                        double defenderDestroyedChance, double attackerDestroyedChance, FightResult result) {
+        result.winner = null;
+        result.defendersDestroyed = BinomialSampler.sample(random, attackingArmies, defenderDestroyedChance);
+        result.attackersDestroyed = BinomialSampler.sample(random, defendingArmies, attackerDestroyedChance);
+        result.postProcessFightResult(attackingArmies, defendingArmies);
+    }
+    
     static FightResult doContinualAttack(Random random,
             int attackingArmies, int defendingArmies,
             double defenderDestroyedChance, double attackerDestroyedChance) {
         
         FightResult result = new FightResult();
+        doContinualAttack(random, attackingArmies, defendingArmies, defenderDestroyedChance, attackerDestroyedChance, result);
+        return result;
+    }
+    
+    static void doContinualAttack(Random random,
+            int attackingArmies, int defendingArmies,
+            double defenderDestroyedChance, double attackerDestroyedChance, FightResult result) {
+        
+        result.reset();
         
         while (result.attackersDestroyed < attackingArmies && result.defendersDestroyed < defendingArmies) {
             // ATTACKERS STRIKE
@@ -374,7 +527,6 @@ public class GameState implements Cloneable {
         }
         
         result.postProcessFightResult(attackingArmies, defendingArmies);
-        return result;
     }
 
     static FightResult doAttack_ORIGINAL_A60_D70(
@@ -383,17 +535,29 @@ public class GameState implements Cloneable {
         return doOriginalAttack(random, attackingArmies, defendingArmies, 0.6, 0.7);
     }
     
+    static FightResult doAttack_ORIGINAL_A60_D70_SAMPLED(
+            Random random, int attackingArmies, int defendingArmies) {
+        
+        return doOriginalAttackSampled(random, attackingArmies, defendingArmies, 0.6, 0.7);
+    }
+    
     static FightResult doAttack_CONTINUAL_1_1_A60_D70(
             Random random, int attackingArmies, int defendingArmies) {
         
         return doContinualAttack(random, attackingArmies, defendingArmies, 0.6, 0.7);
     }
     
+    static FightResult doAttack_CONTINUAL_1_1_A60_D70_SAMPLED(
+            Random random, int attackingArmies, int defendingArmies) {
+        
+        return ContinualFightSampler.A60_D70.sample(random, attackingArmies, defendingArmies);
+    }
+    
     //see wiki.warlight.net/index.php/Combat_Basics
     private void doAttack(AttackTransferMove move)
     {
-        Region fromRegion = region(move.getFromRegion());
-        Region toRegion = region(move.getToRegion());
+        Region fromRegion = map.getRegion(move.getFromRegionId());
+        Region toRegion = map.getRegion(move.getToRegionId());
         int attackingArmies;
         int defendingArmies = toRegion.getArmies();
         
@@ -407,16 +571,9 @@ public class GameState implements Cloneable {
         else
             attackingArmies = fromRegion.getArmies()-1;
         
-        FightResult result = null;
-        
-        switch (config.fight) {
-        case ORIGINAL_A60_D70:
-            result = doAttack_ORIGINAL_A60_D70(random, attackingArmies, defendingArmies);
-            break;
-        case CONTINUAL_1_1_A60_D70:
-            result = doAttack_CONTINUAL_1_1_A60_D70(random, attackingArmies, defendingArmies);
-            break;
-        }
+        if (fightResult == null) fightResult = new FightResult();
+        FightResult result = fightResult;
+        config.getFightResolver().resolve(random, attackingArmies, defendingArmies, result);
         
         switch (result.winner) {
         case ATTACKER: //attack success
@@ -439,12 +596,19 @@ public class GameState implements Cloneable {
 
     void validateAttackTransfers(List<AttackTransferMove> moves)
     {
-        int[] totalFrom = new int[WorldRegion.LAST_ID + 1];
+        int[] totalFrom = new int[map.topology.getRegionCount() + 1];
+        // (from, to) pairs of all earlier moves, replaces the quadratic scan of earlier moves
+        HashSet<Long> earlier = new HashSet<Long>();
         
         for (int i = 0 ; i < moves.size() ; ++i) {
             AttackTransferMove move = moves.get(i);
-            Region fromRegion = region(move.getFromRegion());
-            Region toRegion = region(move.getToRegion());
+            boolean repeated = !earlier.add(((long)move.getFromRegionId() << 32) | (move.getToRegionId() & 0xFFFFFFFFL));
+            if (!isRegionId(move.getFromRegionId()) || !isRegionId(move.getToRegionId())) {
+                move.setIllegalMove(move.getFromRegionId() + " " + move.getToRegionId() + " attack/transfer not a region");
+                continue;
+            }
+            Region fromRegion = map.getRegion(move.getFromRegionId());
+            Region toRegion = map.getRegion(move.getToRegionId());
 
             if (!fromRegion.isOwnedBy(turn))
                 move.setIllegalMove(fromRegion.getId() + " attack/transfer not owned");
@@ -456,15 +620,10 @@ public class GameState implements Cloneable {
                 move.setIllegalMove(fromRegion.getId() +
                         " attack/transfer has used all available armies");
             else {
-                for (int j = 0 ; j < i ; ++j) {
-                    AttackTransferMove n = moves.get(j);
-                    if (n.getFromRegion() == move.getFromRegion() && n.getToRegion() == move.getToRegion()) {
-                        move.setIllegalMove(
-                            "player has already attacked/transfered from region " +
-                                fromRegion.getId() + " to region " + toRegion.getId() + " in this turn");
-                        break;
-                    }
-                }
+                if (repeated)
+                    move.setIllegalMove(
+                        "player has already attacked/transfered from region " +
+                            fromRegion.getId() + " to region " + toRegion.getId() + " in this turn");
                 totalFrom[fromRegion.getId()] += move.getArmies();
             }
         }
@@ -473,6 +632,9 @@ public class GameState implements Cloneable {
     public void attackTransfer(List<AttackTransferMove> moves) {
         if (phase != Phase.ATTACK_TRANSFER)
             throw new Error("wrong time to attack/transfer");
+        
+        if (map.journaling)
+            pushFrame(-1, 0);
 
         validateAttackTransfers(moves);
         
@@ -480,8 +642,8 @@ public class GameState implements Cloneable {
             if(!move.getIllegalMove().equals("")) //the move is illegal
                 continue;
             
-            Region fromRegion = region(move.getFromRegion());
-            Region toRegion = region(move.getToRegion());
+            Region fromRegion = map.getRegion(move.getFromRegionId());
+            Region toRegion = map.getRegion(move.getToRegionId());
             
             move.setArmies(Math.min(move.getArmies(), fromRegion.getArmies() - 1));
 
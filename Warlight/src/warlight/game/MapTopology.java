@@ -0,0 +1,325 @@
+package warlight.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+import warlight.game.world.WorldContinent;
+import warlight.game.world.WorldRegion;
+
+/**
+ * Immutable description of a map: which regions exist, how they neighbour each other and which continents
+ * they form. The topology never changes during a game, so every {@link GameMap} (and all of its clones)
+ * shares a single instance by reference and copies only the per-region state.
+ * 
+ * All ids are 1-based, index 0 of every id-indexed array is unused.
+ * Arrays returned from getters are shared, DO NOT MODIFY them.
+ */
+public class MapTopology {
+    
+    /**
+     * Topology of the standard map defined by {@link WorldRegion} and {@link WorldContinent}.
+     */
+    public static final MapTopology WORLD = fromWorld();
+    
+    final int regionCount;
+    final int continentCount;
+    
+    /**
+     * region id -> ids of neighbouring regions in ascending order
+     */
+    final int[][] neighbors;
+    /**
+     * region id -> id of the continent the region belongs to
+     */
+    final int[] continentOf;
+    /**
+     * region id -> true if the region neighbours a region of another continent
+     */
+    final boolean[] continentBorder;
+    
+    /**
+     * continent id -> ids of its regions in ascending order
+     */
+    final int[][] continentRegions;
+    /**
+     * continent id -> armies reward for owning the whole continent
+     */
+    final int[] continentRewards;
+    
+    /**
+     * Number of 64-bit words of a region bitmask. Bit 'id' of a mask stands for the region 'id', so the standard map
+     * (ids 1..{@link WorldRegion#LAST_ID}) fits into a single long; larger maps use several words per mask.
+     */
+    final int maskWords;
+    /**
+     * region id * maskWords + word -> bitmask of neighbouring regions
+     */
+    final long[] neighborMasks;
+    /**
+     * continent id * maskWords + word -> bitmask of regions of the continent
+     */
+    final long[] continentMasks;
+    
+    /**
+     * region id -> name of the region
+     */
+    final String[] regionNames;
+    /**
+     * continent id -> name of the continent
+     */
+    final String[] continentNames;
+    
+    /**
+     * region id -> matching {@link WorldRegion}, or null for maps not defined by the enum
+     */
+    final WorldRegion[] worldRegions;
+    /**
+     * continent id -> matching {@link WorldContinent}, or null for maps not defined by the enum
+     */
+    final WorldContinent[] worldContinents;
+    
+    /**
+     * Topology of a custom map (e.g. loaded by {@link warlight.game.world.MapLoader}).
+     * 
+     * @param continentOf region id -> continent id, index 0 unused
+     * @param continentRewards continent id -> reward, index 0 unused
+     * @param neighbors region id -> neighbour ids, index 0 unused; edges are made symmetric and sorted
+     * @param regionNames region id -> name, index 0 unused; null to name regions by their ids
+     * @param continentNames continent id -> name, index 0 unused; null to name continents by their ids
+     */
+    public MapTopology(int[] continentOf, int[] continentRewards, int[][] neighbors,
+                       String[] regionNames, String[] continentNames) {
+        this(continentOf, continentRewards, neighbors, regionNames, continentNames, null, null);
+    }
+    
+    private MapTopology(int[] continentOf, int[] continentRewards, int[][] neighbors,
+                        String[] regionNames, String[] continentNames,
+                        WorldRegion[] worldRegions, WorldContinent[] worldContinents) {
+        this.regionCount = continentOf.length - 1;
+        this.continentCount = continentRewards.length - 1;
+        if (regionCount < 1 || continentCount < 1)
+            throw new IllegalArgumentException("map needs at least one region and one continent");
+        if (neighbors.length != continentOf.length)
+            throw new IllegalArgumentException("neighbours given for " + (neighbors.length - 1) + " regions, expected " + regionCount);
+        this.continentOf = continentOf.clone();
+        this.continentRewards = continentRewards.clone();
+        this.regionNames = names(regionNames, regionCount, "region");
+        this.continentNames = names(continentNames, continentCount, "continent");
+        this.worldRegions = worldRegions;
+        this.worldContinents = worldContinents;
+        
+        // SYMMETRIC, SORTED, DUPLICATE-FREE ADJACENCY
+        int[] degree = new int[regionCount + 1];
+        for (int id = 1; id <= regionCount; ++id) {
+            if (neighbors[id] == null) continue;
+            for (int n : neighbors[id]) {
+                if (n < 1 || n > regionCount || n == id)
+                    throw new IllegalArgumentException("invalid neighbour " + n + " of region " + id);
+                ++degree[id];
+                ++degree[n];
+            }
+        }
+        int[][] adjacency = new int[regionCount + 1][];
+        adjacency[0] = new int[0];
+        for (int id = 1; id <= regionCount; ++id)
+            adjacency[id] = new int[degree[id]];
+        int[] filled = new int[regionCount + 1];
+        for (int id = 1; id <= regionCount; ++id) {
+            if (neighbors[id] == null) continue;
+            for (int n : neighbors[id]) {
+                adjacency[id][filled[id]++] = n;
+                adjacency[n][filled[n]++] = id;
+            }
+        }
+        for (int id = 1; id <= regionCount; ++id) {
+            int[] list = adjacency[id];
+            Arrays.sort(list);
+            int count = 0;
+            for (int i = 0; i < list.length; ++i)
+                if (i == 0 || list[i] != list[i - 1])
+                    list[count++] = list[i];
+            adjacency[id] = count == list.length ? list : Arrays.copyOf(list, count);
+        }
+        this.neighbors = adjacency;
+        
+        // CONTINENT MEMBERSHIP
+        int[] size = new int[continentCount + 1];
+        for (int id = 1; id <= regionCount; ++id) {
+            if (continentOf[id] < 1 || continentOf[id] > continentCount)
+                throw new IllegalArgumentException("region " + id + " has invalid continent " + continentOf[id]);
+            ++size[continentOf[id]];
+        }
+        this.continentRegions = new int[continentCount + 1][];
+        this.continentRegions[0] = new int[0];
+        for (int c = 1; c <= continentCount; ++c) {
+            if (size[c] == 0)
+                throw new IllegalArgumentException("continent " + c + " has no regions");
+            this.continentRegions[c] = new int[size[c]];
+            size[c] = 0;
+        }
+        for (int id = 1; id <= regionCount; ++id) {
+            int c = continentOf[id];
+            this.continentRegions[c][size[c]++] = id;
+        }
+        
+        // BITMASKS
+        this.maskWords = (regionCount >>> 6) + 1;
+        this.neighborMasks = new long[(regionCount + 1) * maskWords];
+        for (int id = 1; id <= regionCount; ++id)
+            for (int n : this.neighbors[id])
+                neighborMasks[id * maskWords + (n >>> 6)] |= 1L << n;
+        this.continentMasks = new long[(continentCount + 1) * maskWords];
+        for (int id = 1; id <= regionCount; ++id)
+            continentMasks[continentOf[id] * maskWords + (id >>> 6)] |= 1L << id;
+        
+        // BORDER FLAGS
+        this.continentBorder = new boolean[regionCount + 1];
+        for (int id = 1; id <= regionCount; ++id) {
+            for (int n : this.neighbors[id])
+                if (continentOf[n] != continentOf[id]) {
+                    continentBorder[id] = true;
+                    break;
+                }
+        }
+    }
+    
+    private static String[] names(String[] names, int count, String what) {
+        if (names != null && names.length != count + 1)
+            throw new IllegalArgumentException(what + " names given for " + (names.length - 1) + " ids, expected " + count);
+        String[] result = new String[count + 1];
+        for (int id = 1; id <= count; ++id)
+            result[id] = names == null || names[id] == null ? String.valueOf(id) : names[id];
+        return result;
+    }
+    
+    private static MapTopology fromWorld() {
+        int[] continentOf = new int[WorldRegion.LAST_ID + 1];
+        int[][] neighbors = new int[WorldRegion.LAST_ID + 1][];
+        String[] regionNames = new String[WorldRegion.LAST_ID + 1];
+        WorldRegion[] worldRegions = new WorldRegion[WorldRegion.LAST_ID + 1];
+        for (WorldRegion region : WorldRegion.values()) {
+            continentOf[region.id] = region.worldContinent.id;
+            regionNames[region.id] = region.name();
+            worldRegions[region.id] = region;
+            List<WorldRegion> list = region.getNeighbours();
+            neighbors[region.id] = new int[list.size()];
+            for (int i = 0; i < list.size(); ++i)
+                neighbors[region.id][i] = list.get(i).id;
+        }
+        
+        int[] rewards = new int[WorldContinent.LAST_ID + 1];
+        String[] continentNames = new String[WorldContinent.LAST_ID + 1];
+        WorldContinent[] worldContinents = new WorldContinent[WorldContinent.LAST_ID + 1];
+        for (WorldContinent continent : WorldContinent.values()) {
+            rewards[continent.id] = continent.reward;
+            continentNames[continent.id] = continent.name();
+            worldContinents[continent.id] = continent;
+        }
+        
+        return new MapTopology(continentOf, rewards, neighbors, regionNames, continentNames, worldRegions, worldContinents);
+    }
+    
+    public int getRegionCount() {
+        return regionCount;
+    }
+    
+    public int getContinentCount() {
+        return continentCount;
+    }
+    
+    /**
+     * @return ids of regions neighbouring region 'id' in ascending order
+     */
+    public int[] getNeighbors(int id) {
+        return neighbors[id];
+    }
+    
+    public boolean isNeighbor(int id, int otherId) {
+        return (neighborMasks[id * maskWords + (otherId >>> 6)] & (1L << otherId)) != 0;
+    }
+    
+    /**
+     * @return number of longs a region bitmask of this map takes; 1 for maps of at most 63 regions
+     */
+    public int getMaskWords() {
+        return maskWords;
+    }
+    
+    /**
+     * @return bitmask of regions neighbouring region 'id'; only for maps with {@link #getMaskWords()} == 1
+     */
+    public long getNeighborMask(int id) {
+        checkSingleWord();
+        return neighborMasks[id];
+    }
+    
+    /**
+     * @return 'word'-th long of the bitmask of regions neighbouring region 'id'
+     */
+    public long getNeighborMask(int id, int word) {
+        return neighborMasks[id * maskWords + word];
+    }
+    
+    /**
+     * @return bitmask of regions of the continent 'continentId'; only for maps with {@link #getMaskWords()} == 1
+     */
+    public long getContinentMask(int continentId) {
+        checkSingleWord();
+        return continentMasks[continentId];
+    }
+    
+    /**
+     * @return 'word'-th long of the bitmask of regions of the continent 'continentId'
+     */
+    public long getContinentMask(int continentId, int word) {
+        return continentMasks[continentId * maskWords + word];
+    }
+    
+    void checkSingleWord() {
+        if (maskWords != 1)
+            throw new IllegalStateException("map of " + regionCount + " regions does not fit into a single long mask, use the per-word variant");
+    }
+    
+    public int getContinentOf(int id) {
+        return continentOf[id];
+    }
+    
+    public boolean isContinentBorder(int id) {
+        return continentBorder[id];
+    }
+    
+    /**
+     * @return ids of regions of the continent 'continentId' in ascending order
+     */
+    public int[] getContinentRegions(int continentId) {
+        return continentRegions[continentId];
+    }
+    
+    public int getContinentReward(int continentId) {
+        return continentRewards[continentId];
+    }
+    
+    public String getRegionName(int id) {
+        return regionNames[id];
+    }
+    
+    public String getContinentName(int continentId) {
+        return continentNames[continentId];
+    }
+    
+    /**
+     * @return true if this is the standard map, i.e. {@link #getWorldRegion(int)} and {@link #getWorldContinent(int)} are available
+     */
+    public boolean isWorld() {
+        return worldRegions != null;
+    }
+    
+    public WorldRegion getWorldRegion(int id) {
+        return worldRegions == null ? null : worldRegions[id];
+    }
+    
+    public WorldContinent getWorldContinent(int continentId) {
+        return worldContinents == null ? null : worldContinents[continentId];
+    }
+    
+}
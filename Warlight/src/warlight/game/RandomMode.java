@@ -0,0 +1,44 @@
+package warlight.game;
+
+/**
+ * Random number generator used by a {@link GameState}, see {@link GameConfig#random}.
+ */
+public enum RandomMode {
+    
+    /**
+     * {@link ReplayRandom}: the sequences of {@link java.util.Random}, so seeded games replay exactly as they always did.
+     * Cloned states get a generator seeded by nextInt() of the original; fine for a few clones,
+     * but the streams of massively many clones are not guaranteed to be independent.
+     */
+    REPLAY,
+    
+    /**
+     * {@link SplitMixRandom}: the SplitMix64 algorithm of {@link java.util.SplittableRandom},
+     * fast and with statistically independent split streams.
+     */
+    SPLITMIX,
+    
+    /**
+     * {@link XoshiroRandom}: xoshiro256** by Blackman and Vigna, fast, period 2^256 - 1;
+     * split streams are seeded from the parent's stream through SplitMix64.
+     */
+    XOSHIRO;
+    
+    public GameRandom create(long seed) {
+        switch (this) {
+        case REPLAY:   return new ReplayRandom(seed);
+        case SPLITMIX: return new SplitMixRandom(seed);
+        case XOSHIRO:  return new XoshiroRandom(seed);
+        default:
+            throw new RuntimeException("Unhandled RandomMode: " + this);
+        }
+    }
+    
+    /**
+     * @return generator with a random seed
+     */
+    public GameRandom create() {
+        return create(new java.util.Random().nextLong());
+    }
+    
+}
@@ -20,35 +20,18 @@ import java.util.ArrayList;
 
 import warlight.game.world.WorldRegion;
 
+/**
+ * Lightweight view of a single region of a {@link GameMap}; owner and armies are stored in the map itself.
+ */
 public class Region {
-    private WorldRegion worldRegion;
+    private GameMap map;
+    private int id;
     private ArrayList<Region> neighbors;
-    private Continent continent;
-    private int armies;
-    private int owner;
     
-    public Region(WorldRegion region, Continent continent, int owner, int armies)
+    Region(GameMap map, int id)
     {
-        this.worldRegion = region;
-        this.continent = continent;
-        this.neighbors = new ArrayList<Region>();
-        this.owner = owner;
-        this.armies = armies;
-        
-        continent.addRegion(this);
-    }
-    
-    public Region(WorldRegion region,Continent continent) {
-        this(region, continent, 0, 0);
-    }
-    
-    public void addNeighbor(Region neighbor)
-    {
-        if(!neighbors.contains(neighbor))
-        {
-            neighbors.add(neighbor);
-            neighbor.addNeighbor(this);
-        }
+        this.map = map;
+        this.id = id;
     }
     
     /**
@@ -57,7 +40,7 @@ public class Region {
      */
     public boolean isNeighbor(Region region)
     {
-        return neighbors.contains(region);
+        return map.topology.isNeighbor(id, region.id);
     }
 
     /**
@@ -66,39 +49,53 @@ public class Region {
      */
     public boolean isOwnedBy(int player)
     {
-        return owner == player;
+        return map.getOwner(id) == player;
     }
     
     /**
      * @param armies Sets the number of armies that are on this Region
      */
     public void setArmies(int armies) {
-        this.armies = armies;
+        map.setArmies(id, armies);
     }
     
     /**
      * @param playerName Sets the player that this Region belongs to
      */
     public void setOwner(int owner) {
-        this.owner = owner;
-        continent.computeOwner();
+        map.setOwner(id, owner);
     }
     
     /**
      * @return The id of this Region
      */
     public int getId() {
-        return worldRegion.id;
+        return id;
     }
 
     public String mapName() {
-        return worldRegion.mapName;
+        WorldRegion worldRegion = getWorldRegion();
+        return worldRegion != null ? worldRegion.mapName : getName();
     }
     
     /**
-     * @return A list of this Region's neighboring Regions
+     * @return The name of this Region as given by the map definition
+     */
+    public String getName() {
+        return map.topology.regionNames[id];
+    }
+    
+    /**
+     * @return A list of this Region's neighboring Regions, ordered by id
      */
     public ArrayList<Region> getNeighbors() {
+        if (neighbors == null) {
+            int[] ids = map.topology.neighbors[id];
+            ArrayList<Region> result = new ArrayList<Region>(ids.length);
+            for (int neighbor : ids)
+                result.add(map.getRegion(neighbor));
+            neighbors = result;
+        }
         return neighbors;
     }
 
@@ -106,40 +103,40 @@ public class Region {
      * @return The continent this Region is part of
      */
     public Continent getContinent() {
-        return continent;
+        return map.getContinent(map.topology.continentOf[id]);
     }
     
     /**
      * @return The number of armies on this region
      */
     public int getArmies() {
-        return armies;
+        return map.getArmies(id);
     }
     
     /**
      * @return The player that owns this region
      */
     public int getOwner() {
-        return owner;
+        return map.getOwner(id);
     }
     
     public WorldRegion getWorldRegion() {
-        return worldRegion;
+        return map.topology.getWorldRegion(id);
+    }
+    
+    /**
+     * @return True if this Region neighbours a Region of another continent
+     */
+    public boolean isContinentBorder() {
+        return map.topology.continentBorder[id];
     }
 
     public boolean isVisible(int player) {
-        if (isOwnedBy(player))
-            return true;
-        
-        for (Region s : getNeighbors())
-            if (s.isOwnedBy(player))
-                return true;
-        
-        return false;
+        return map.isVisible(id, player);
     }
     
     @Override
     public String toString() {
-        return worldRegion.name() + "[" + owner + "|" + armies + "]";
+        return getName() + "[" + getOwner() + "|" + getArmies() + "]";
     }
 }
@@ -0,0 +1,116 @@
+package warlight.game;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only set of Regions of a {@link GameMap} stored as an ascending array of ids plus a bitmask,
+ * so iterating by index does not allocate and {@link #contains(int)} is a bit test.
+ * 
+ * Sets returned by {@link GameMap#getOwnedSet(int)}, {@link GameMap#getVisibleSet(int)} and
+ * {@link GameMap#getFrontierSet(int)} are cached by the map and refilled in place when they are asked for
+ * after the player's ownership changed, so do not keep them across moves.
+ */
+public class RegionSet implements Iterable<Region> {
+    
+    private final GameMap map;
+    
+    int[] ids;
+    int size;
+    final long[] mask;
+    
+    /**
+     * Value of GameMap#ownershipVersions the set was filled at.
+     */
+    long version = -1;
+    
+    RegionSet(GameMap map) {
+        this.map = map;
+        this.ids = new int[8];
+        this.mask = new long[map.topology.maskWords];
+    }
+    
+    /**
+     * Refills ids from the mask.
+     */
+    void update(long version) {
+        size = 0;
+        for (int w = 0; w < mask.length; ++w)
+            for (long bits = mask[w]; bits != 0; bits &= bits - 1) {
+                if (size == ids.length)
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                ids[size++] = (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        this.version = version;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * @return id of the 'index'-th Region of the set (ids are ascending)
+     */
+    public int getId(int index) {
+        if (index >= size)
+            throw new IndexOutOfBoundsException("index " + index + " of set of size " + size);
+        return ids[index];
+    }
+    
+    /**
+     * @return the 'index'-th Region of the set (ordered by id)
+     */
+    public Region get(int index) {
+        return map.getRegion(getId(index));
+    }
+    
+    public boolean contains(int id) {
+        return id >= 0 && (id >>> 6) < mask.length && (mask[id >>> 6] & (1L << id)) != 0;
+    }
+    
+    public boolean contains(Region region) {
+        return contains(region.getId());
+    }
+    
+    /**
+     * @return 'word'-th long of the bitmask of the set, see {@link MapTopology#getMaskWords()}
+     */
+    public long getMask(int word) {
+        return mask[word];
+    }
+    
+    @Override
+    public Iterator<Region> iterator() {
+        return new Iterator<Region>() {
+            int index = 0;
+            
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+            
+            @Override
+            public Region next() {
+                if (index >= size)
+                    throw new NoSuchElementException();
+                return map.getRegion(ids[index++]);
+            }
+        };
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size; ++i) {
+            if (i > 0) sb.append(", ");
+            sb.append(ids[i]);
+        }
+        return sb.append("]").toString();
+    }
+    
+}
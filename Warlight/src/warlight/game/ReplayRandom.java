@@ -0,0 +1,84 @@
+package warlight.game;
+
+import java.util.Random;
+
+/**
+ * Drop-in replacement of {@link Random} producing exactly the same number sequences for the same seed
+ * (so seeded games replay the same), whose internal state can be read and restored.
+ * That allows {@link GameState#undo()} to rewind the random number generator together with the game.
+ * 
+ * Unlike {@link Random} this class is not thread-safe.
+ */
+public class ReplayRandom extends GameRandom {
+    
+    /**
+     * AUTO-GENERATED
+     */
+    private static final long serialVersionUID = -3141769521733860487L;
+    
+    // SAME CONSTANTS AS java.util.Random
+    private static final long multiplier = 0x5DEECE66DL;
+    private static final long addend = 0xBL;
+    private static final long mask = (1L << 48) - 1;
+    
+    // NOTE: no initializer, it is set by Random's constructor through setSeed(long)
+    private long state;
+    
+    public ReplayRandom() {
+        this(new Random().nextLong());
+    }
+    
+    public ReplayRandom(long seed) {
+        setSeed(seed);
+    }
+    
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ multiplier) & mask;
+    }
+    
+    @Override
+    protected int next(int bits) {
+        state = (state * multiplier + addend) & mask;
+        return (int)(state >>> (48 - bits));
+    }
+    
+    /**
+     * @return current position in the random sequence, see {@link #setState(long)}
+     */
+    public long getState() {
+        return state;
+    }
+    
+    /**
+     * Rewinds the generator to a position previously obtained by {@link #getState()}.
+     */
+    public void setState(long state) {
+        this.state = state & mask;
+    }
+    
+    /**
+     * Seeds the new generator by nextInt() of this one, as cloned GameStates always did.
+     */
+    @Override
+    public GameRandom split() {
+        return new ReplayRandom(nextInt());
+    }
+    
+    @Override
+    public int getStateSize() {
+        return 1;
+    }
+    
+    @Override
+    public void saveState(long[] into, int offset) {
+        into[offset] = state;
+    }
+    
+    @Override
+    public void restoreState(long[] from, int offset) {
+        setState(from[offset]);
+    }
+    
+}
@@ -0,0 +1,106 @@
+package warlight.game;
+
+/**
+ * SplitMix64, the algorithm of {@link java.util.SplittableRandom} (Steele, Lea, Flood: "Fast splittable pseudorandom
+ * number generators", OOPSLA 2014), as a {@link GameRandom}. {@link #nextLong()}, {@link #nextInt()},
+ * {@link #nextDouble()} and {@link #split()} produce the same sequences as those of SplittableRandom for the same seed;
+ * the other methods (nextInt(bound), nextBoolean(), ...) derive their values as {@link java.util.Random} does,
+ * so they differ from SplittableRandom's.
+ * 
+ * Not thread-safe.
+ */
+public class SplitMixRandom extends GameRandom {
+    
+    /**
+     * AUTO-GENERATED
+     */
+    private static final long serialVersionUID = 2392471627309418413L;
+    
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+    
+    // NOTE: no initializers, see GameRandom()
+    private long seed;
+    private long gamma;
+    
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+    
+    private SplitMixRandom(long seed, long gamma) {
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+    
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        this.seed = seed;
+        this.gamma = GOLDEN_GAMMA;
+    }
+    
+    private long nextSeed() {
+        return seed += gamma;
+    }
+    
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    private static int mix32(long z) {
+        z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+        return (int)(((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+    }
+    
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+    
+    @Override
+    protected int next(int bits) {
+        return (int)(mix64(nextSeed()) >>> (64 - bits));
+    }
+    
+    @Override
+    public int nextInt() {
+        return mix32(nextSeed());
+    }
+    
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+    
+    @Override
+    public double nextDouble() {
+        return (mix64(nextSeed()) >>> 11) * 0x1.0p-53;
+    }
+    
+    @Override
+    public GameRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+    
+    @Override
+    public int getStateSize() {
+        return 2;
+    }
+    
+    @Override
+    public void saveState(long[] into, int offset) {
+        into[offset] = seed;
+        into[offset + 1] = gamma;
+    }
+    
+    @Override
+    public void restoreState(long[] from, int offset) {
+        seed = from[offset];
+        gamma = from[offset + 1];
+    }
+    
+}
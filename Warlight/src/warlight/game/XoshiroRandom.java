@@ -0,0 +1,95 @@
+package warlight.game;
+
+/**
+ * xoshiro256** 1.0 by David Blackman and Sebastiano Vigna (https://prng.di.unimi.it/) as a {@link GameRandom}:
+ * 256 bits of state, period 2^256 - 1, a handful of shifts and xors per number.
+ * The state is expanded from the 64-bit seed by SplitMix64, as the authors recommend;
+ * {@link #split()} seeds the new generator the same way from {@link #nextLong()} of this one.
+ * 
+ * Not thread-safe.
+ */
+public class XoshiroRandom extends GameRandom {
+    
+    /**
+     * AUTO-GENERATED
+     */
+    private static final long serialVersionUID = -6527317046624593310L;
+    
+    // NOTE: no initializers, see GameRandom()
+    private long s0, s1, s2, s3;
+    
+    public XoshiroRandom(long seed) {
+        setSeed(seed);
+    }
+    
+    @Override
+    public void setSeed(long seed) {
+        super.setSeed(seed);
+        // SplitMix64 expansion; never gives the forbidden all-zero state
+        s0 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s1 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s2 = splitMix(seed += 0x9e3779b97f4a7c15L);
+        s3 = splitMix(seed += 0x9e3779b97f4a7c15L);
+    }
+    
+    private static long splitMix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+    
+    @Override
+    public long nextLong() {
+        long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+    
+    @Override
+    protected int next(int bits) {
+        return (int)(nextLong() >>> (64 - bits));
+    }
+    
+    @Override
+    public int nextInt() {
+        return (int)(nextLong() >>> 32);
+    }
+    
+    @Override
+    public double nextDouble() {
+        return (nextLong() >>> 11) * 0x1.0p-53;
+    }
+    
+    @Override
+    public GameRandom split() {
+        return new XoshiroRandom(nextLong());
+    }
+    
+    @Override
+    public int getStateSize() {
+        return 4;
+    }
+    
+    @Override
+    public void saveState(long[] into, int offset) {
+        into[offset] = s0;
+        into[offset + 1] = s1;
+        into[offset + 2] = s2;
+        into[offset + 3] = s3;
+    }
+    
+    @Override
+    public void restoreState(long[] from, int offset) {
+        s0 = from[offset];
+        s1 = from[offset + 1];
+        s2 = from[offset + 2];
+        s3 = from[offset + 3];
+    }
+    
+}
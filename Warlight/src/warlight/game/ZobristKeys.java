@@ -0,0 +1,73 @@
+package warlight.game;
+
+/**
+ * Keys of the Zobrist hash of a {@link GameState}, see {@link GameState#getHash()}.
+ * 
+ * Every (region, owner, armies) triple and every phase and player on turn has its own pseudo-random 64-bit key,
+ * the hash of a state is XOR of keys of all its parts, so {@link GameMap} can keep it up to date in O(1)
+ * on every {@link Region#setOwner(int)} / {@link Region#setArmies(int)}.
+ * Keys are derived from a seed by a mixing function instead of being stored in tables,
+ * so they work for maps of any size and any number of armies.
+ * 
+ * Instances are immutable and may be shared by any number of maps.
+ */
+public class ZobristKeys {
+    
+    /**
+     * Every army count hashes differently.
+     */
+    public static final ZobristKeys EXACT = new ZobristKeys(0x5A0B8157L, Integer.MAX_VALUE);
+    
+    private final long seed;
+    private final int exactArmiesLimit;
+    
+    /**
+     * @param seed determines the keys; states hash equally only when hashed by keys with the same seed
+     * @param exactArmiesLimit army counts below this number hash exactly, larger ones are put into buckets
+     *        [limit, 2*limit), [2*limit, 4*limit), ... so that transpositions of large stacks differing by a few
+     *        armies collide on purpose
+     */
+    public ZobristKeys(long seed, int exactArmiesLimit) {
+        if (exactArmiesLimit < 1)
+            throw new IllegalArgumentException("exactArmiesLimit must be positive, got " + exactArmiesLimit);
+        this.seed = seed;
+        this.exactArmiesLimit = exactArmiesLimit;
+    }
+    
+    public int getExactArmiesLimit() {
+        return exactArmiesLimit;
+    }
+    
+    /**
+     * @return bucket the army count falls into
+     */
+    public int bucket(int armies) {
+        if (armies < exactArmiesLimit)
+            return armies;
+        // limit + floor(log2(armies / limit))
+        return exactArmiesLimit + 31 - Integer.numberOfLeadingZeros(armies / exactArmiesLimit);
+    }
+    
+    /**
+     * @return key of the Region 'id' owned by 'owner' with army bucket 'bucket'
+     */
+    public long region(int id, int owner, int bucket) {
+        return mix(seed ^ (id * 0x9E3779B97F4A7C15L) ^ ((((long)owner << 32) | (bucket & 0xFFFFFFFFL)) * 0xC2B2AE3D27D4EB4FL));
+    }
+    
+    public long phase(Phase phase) {
+        return mix(seed ^ 0x165667B19E3779F9L ^ (phase.ordinal() + 1));
+    }
+    
+    public long turn(int player) {
+        return mix(seed ^ 0x27D4EB2F165667C5L ^ (player + 1));
+    }
+    
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+    
+}
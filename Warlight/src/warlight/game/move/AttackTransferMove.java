@@ -27,16 +27,21 @@ import warlight.game.world.WorldRegion;
  */
 
 public class AttackTransferMove extends Move {
-    private WorldRegion fromRegion;
-    private WorldRegion toRegion;
+    // Region ids, see PlaceArmiesMove
+    private int fromRegion;
+    private int toRegion;
     private int armies;
     
+    public AttackTransferMove(int fromRegionId, int toRegionId, int armies) {
+        this.fromRegion = fromRegionId; this.toRegion = toRegionId; this.armies = armies;
+    }
+    
     public AttackTransferMove(WorldRegion fromRegion, WorldRegion toRegion, int armies) {
-        this.fromRegion = fromRegion; this.toRegion = toRegion; this.armies = armies;
+        this(fromRegion.id, toRegion.id, armies);
     }
 
     public AttackTransferMove(Region fromRegion, Region toRegion, int armies) {
-        this(fromRegion.getWorldRegion(), toRegion.getWorldRegion(), armies);
+        this(fromRegion.getId(), toRegion.getId(), armies);
     }
 
     /**
@@ -47,16 +52,30 @@ public class AttackTransferMove extends Move {
     }
     
     /**
-     * @return The Region this Move is attacking or transferring from
+     * @return The Region this Move is attacking or transferring from; null on maps other than the standard one
      */
     public WorldRegion getFromRegion() {
-        return fromRegion;
+        return WorldRegion.forId(fromRegion);
     }
     
     /**
-     * @return The Region this Move is attacking or transferring to
+     * @return The Region this Move is attacking or transferring to; null on maps other than the standard one
      */
     public WorldRegion getToRegion() {
+        return WorldRegion.forId(toRegion);
+    }
+    
+    /**
+     * @return The id of the Region this Move is attacking or transferring from
+     */
+    public int getFromRegionId() {
+        return fromRegion;
+    }
+    
+    /**
+     * @return The id of the Region this Move is attacking or transferring to
+     */
+    public int getToRegionId() {
         return toRegion;
     }
     
@@ -72,7 +91,7 @@ public class AttackTransferMove extends Move {
      */
     public String getString() {
         if(getIllegalMove().equals(""))
-            return "attack/transfer " + fromRegion.id + " " + toRegion.id + " " + armies;
+            return "attack/transfer " + fromRegion + " " + toRegion + " " + armies;
         else
             return "illegal_move " + getIllegalMove();
     }
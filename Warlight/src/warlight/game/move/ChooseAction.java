@@ -1,24 +1,23 @@
 package warlight.game.move;
 
 import warlight.game.*;
-import warlight.game.world.WorldRegion;
 
 public class ChooseAction implements Action {
-    // The bot API uses Regions, but we store WorldRegions inside this and other action classes
+    // The bot API uses Regions, but we store region ids inside this and other action classes
     // so that actions generated in a cloned game state are still valid in the original state.
 
-    public WorldRegion region;
+    public int region;
     
     public ChooseAction(Region region) {
-        this.region = region.getWorldRegion();
+        this.region = region.getId();
     }
     
     public void apply(GameState state) {
-        state.chooseRegion(state.region(region));
+        state.chooseRegion(state.getRegion(region));
     }
 
     @Override
     public String toString() {
-        return String.format("[ChooseAction %s]", region.mapName);
+        return String.format("[ChooseAction %s]", region);
     }
 }
@@ -26,15 +26,21 @@ import warlight.game.world.WorldRegion;
  */
 
 public class PlaceArmiesMove extends Move {
-    private WorldRegion region;
+    // Region id, so that moves generated in a cloned game state are still valid in the original state
+    // and moves work on maps other than the standard one as well.
+    private int region;
     private int armies;
     
+    public PlaceArmiesMove(int regionId, int armies) {
+        this.region = regionId; this.armies = armies;
+    }
+    
     public PlaceArmiesMove(WorldRegion region, int armies) {
-        this.region = region; this.armies = armies;
+        this(region.id, armies);
     }
 
     public PlaceArmiesMove(Region region, int armies) {
-        this(region.getWorldRegion(), armies);
+        this(region.getId(), armies);
     }
     
     /**
@@ -45,9 +51,16 @@ public class PlaceArmiesMove extends Move {
     }
     
     /**
-     * @return The Region this Move will be placing armies on
+     * @return The Region this Move will be placing armies on; null on maps other than the standard one
      */
     public WorldRegion getRegion() {
+        return WorldRegion.forId(region);
+    }
+    
+    /**
+     * @return The id of the Region this Move will be placing armies on
+     */
+    public int getRegionId() {
         return region;
     }
     
@@ -63,7 +76,7 @@ public class PlaceArmiesMove extends Move {
      */
     public String getString() {
         if(getIllegalMove().equals(""))
-            return "place_armies " + region.id + " " + armies;
+            return "place_armies " + region + " " + armies;
         else
             return "illegal_move " + getIllegalMove();
                 
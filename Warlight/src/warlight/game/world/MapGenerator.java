@@ -0,0 +1,202 @@
+package warlight.game.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import warlight.game.MapTopology;
+
+/**
+ * Generates random planar maps of arbitrary size, meant for measuring how the engine and bots scale
+ * beyond the 42 regions of the standard map.
+ *
+ * Regions are laid out on a grid of roughly sqrt(regions) columns. Edges are taken from the grid
+ * (left/right/up/down) plus at most one diagonal per grid cell, so the map stays planar: first a random
+ * spanning tree that keeps the map connected, then random further edges until the average degree is reached.
+ * Continents are grown from random seed regions in a round-robin breadth-first manner, so they are
+ * connected and of similar sizes.
+ *
+ * The result plugs into a game via {@link warlight.game.GameState#makeInitMap(MapTopology)}
+ * or, saved by {@link MapLoader#save(MapTopology, File)}, via {@link warlight.game.GameConfig#map}.
+ */
+public class MapGenerator {
+
+    public int regions = 1000;
+
+    /**
+     * Average number of regions of a continent.
+     */
+    public int continentSize = 7;
+
+    /**
+     * Target average number of neighbours of a region; at least 2 (a tree), at most 6 (grid + all diagonals).
+     */
+    public double degree = 4;
+
+    /**
+     * Continent reward = max(1, round(size * rewardPerRegion)); the standard map has about 0.6.
+     */
+    public double rewardPerRegion = 0.5;
+
+    public long seed = 0;
+
+    public MapTopology generate() {
+        if (regions < 2) throw new IllegalArgumentException("at least 2 regions are needed, got " + regions);
+        if (continentSize < 1) throw new IllegalArgumentException("continentSize must be positive, got " + continentSize);
+
+        Random random = new Random(seed);
+        int width = (int)Math.ceil(Math.sqrt(regions));
+
+        // CANDIDATE EDGES: grid neighbours plus one randomly oriented diagonal per cell
+        int[] edgeA = new int[3 * regions];
+        int[] edgeB = new int[3 * regions];
+        int edges = 0;
+        for (int i = 0; i < regions; ++i) {
+            int col = i % width;
+            if (col + 1 < width && i + 1 < regions) {
+                edgeA[edges] = i; edgeB[edges++] = i + 1;
+            }
+            if (i + width < regions) {
+                edgeA[edges] = i; edgeB[edges++] = i + width;
+            }
+            if (col + 1 < width && i + width + 1 < regions) {
+                if (random.nextBoolean()) {
+                    edgeA[edges] = i; edgeB[edges++] = i + width + 1;
+                } else {
+                    edgeA[edges] = i + 1; edgeB[edges++] = i + width;
+                }
+            }
+        }
+        shuffle(random, edgeA, edgeB, edges);
+
+        // SPANNING TREE (Kruskal over the shuffled edges) first, then fill up to the target degree
+        int[] parent = new int[regions];
+        for (int i = 0; i < regions; ++i) parent[i] = i;
+        boolean[] used = new boolean[edges];
+        int[] degrees = new int[regions];
+        long wanted = Math.round(Math.max(2, Math.min(6, degree)) * regions / 2);
+        long added = 0;
+        for (int e = 0; e < edges; ++e) {
+            int a = find(parent, edgeA[e]), b = find(parent, edgeB[e]);
+            if (a == b) continue;
+            parent[a] = b;
+            used[e] = true;
+            ++degrees[edgeA[e]]; ++degrees[edgeB[e]];
+            ++added;
+        }
+        for (int e = 0; e < edges && added < wanted; ++e) {
+            if (used[e]) continue;
+            used[e] = true;
+            ++degrees[edgeA[e]]; ++degrees[edgeB[e]];
+            ++added;
+        }
+
+        int[][] neighbors = new int[regions + 1][];
+        for (int i = 0; i < regions; ++i)
+            neighbors[i + 1] = new int[degrees[i]];
+        Arrays.fill(degrees, 0);
+        for (int e = 0; e < edges; ++e) {
+            if (!used[e]) continue;
+            int a = edgeA[e], b = edgeB[e];
+            neighbors[a + 1][degrees[a]++] = b + 1;
+            neighbors[b + 1][degrees[b]++] = a + 1;
+        }
+
+        // CONTINENTS: round-robin BFS growth from random seeds
+        int continents = Math.max(1, Math.min(regions, (regions + continentSize / 2) / continentSize));
+        int[] continentOf = new int[regions + 1];
+        int[] head = new int[continents + 1];  // continent -> first of its members that may have unclaimed neighbours
+        int[][] members = new int[continents + 1][];
+        int[] size = new int[continents + 1];
+        int claimed = 0;
+        for (int c = 1; c <= continents; ++c) {
+            int seedRegion;
+            do {
+                seedRegion = 1 + random.nextInt(regions);
+            } while (continentOf[seedRegion] != 0);
+            continentOf[seedRegion] = c;
+            members[c] = new int[4 * continentSize];
+            members[c][size[c]++] = seedRegion;
+            ++claimed;
+        }
+        int[] active = new int[continents];   // continents that may still grow
+        for (int c = 1; c <= continents; ++c) active[c - 1] = c;
+        int activeCount = continents;
+        while (claimed < regions) {
+            if (activeCount == 0) throw new RuntimeException("continent growth stuck, map is not connected");
+            for (int k = 0; k < activeCount; ++k) {
+                int c = active[k];
+                // claim one unclaimed neighbour of the oldest member that still has some
+                boolean grown = false;
+                while (head[c] < size[c]) {
+                    int region = members[c][head[c]];
+                    int free = 0;
+                    for (int n : neighbors[region])
+                        if (continentOf[n] == 0) ++free;
+                    if (free == 0) {
+                        ++head[c];
+                        continue;
+                    }
+                    int pick = random.nextInt(free);
+                    for (int n : neighbors[region])
+                        if (continentOf[n] == 0 && pick-- == 0) {
+                            continentOf[n] = c;
+                            if (size[c] == members[c].length)
+                                members[c] = Arrays.copyOf(members[c], 2 * size[c]);
+                            members[c][size[c]++] = n;
+                            ++claimed;
+                            break;
+                        }
+                    grown = true;
+                    break;
+                }
+                if (!grown) active[k--] = active[--activeCount];
+            }
+        }
+
+        int[] rewards = new int[continents + 1];
+        for (int c = 1; c <= continents; ++c)
+            rewards[c] = (int)Math.max(1, Math.round(size[c] * rewardPerRegion));
+
+        return new MapTopology(continentOf, rewards, neighbors, null, null);
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void shuffle(Random random, int[] a, int[] b, int count) {
+        for (int i = count - 1; i > 0; --i) {
+            int j = random.nextInt(i + 1);
+            int t = a[i]; a[i] = a[j]; a[j] = t;
+            t = b[i]; b[i] = b[j]; b[j] = t;
+        }
+    }
+
+    /**
+     * Generates a map and writes its definition.
+     * Usage: MapGenerator &lt;regions&gt; &lt;continentSize&gt; &lt;degree&gt; &lt;seed&gt; &lt;outputFile&gt;
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: MapGenerator <regions> <continentSize> <degree> <seed> <outputFile>");
+            System.exit(1);
+        }
+        MapGenerator generator = new MapGenerator();
+        generator.regions = Integer.parseInt(args[0]);
+        generator.continentSize = Integer.parseInt(args[1]);
+        generator.degree = Double.parseDouble(args[2]);
+        generator.seed = Long.parseLong(args[3]);
+
+        MapTopology topology = generator.generate();
+        MapLoader.save(topology, new File(args[4]));
+        System.out.println("Generated " + topology.getRegionCount() + " regions, " + topology.getContinentCount() +
+                           " continents into " + args[4]);
+    }
+
+}
@@ -0,0 +1,314 @@
+package warlight.game.world;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import warlight.game.MapTopology;
+
+/**
+ * Loads maps other than the standard {@link WorldRegion} map from a text definition file and compiles them
+ * into a {@link MapTopology}.
+ *
+ * Definition format, one entry per line, '#' starts a comment:
+ * <pre>
+ * continent &lt;id&gt; &lt;reward&gt; [name]
+ * region &lt;id&gt; &lt;continentId&gt; [name]
+ * neighbors &lt;id&gt; &lt;neighbourId&gt; &lt;neighbourId&gt; ...
+ * </pre>
+ * Ids of regions and continents must form 1..N, names may contain spaces. Neighbourhood is symmetric,
+ * so every edge needs to be listed for one of its ends only.
+ *
+ * Parsing is done once: the compiled topology is cached next to the definition as '&lt;file&gt;.compiled'
+ * (reused while the definition's size and modification time match) and in memory for the lifetime of the JVM,
+ * so repeated games of a tournament load the map for free.
+ */
+public class MapLoader {
+
+    public static final String COMPILED_SUFFIX = ".compiled";
+
+    private static final int COMPILED_MAGIC = 0x574C4D50; // "WLMP"
+    private static final int COMPILED_VERSION = 1;
+
+    private static class Loaded {
+        long length;
+        long lastModified;
+        MapTopology topology;
+    }
+
+    private static final Map<String, Loaded> loaded = new HashMap<String, Loaded>();
+
+    /**
+     * Returns the topology defined by 'file', parsing it only if neither the in-memory nor the on-disk
+     * compiled cache is up to date.
+     */
+    public static MapTopology load(File file) {
+        String key;
+        try {
+            key = file.getCanonicalPath();
+        } catch (IOException e) {
+            key = file.getAbsolutePath();
+        }
+        if (!file.isFile())
+            throw new RuntimeException("Map definition not found: " + key);
+
+        synchronized (loaded) {
+            Loaded entry = loaded.get(key);
+            if (entry != null && entry.length == file.length() && entry.lastModified == file.lastModified())
+                return entry.topology;
+
+            entry = new Loaded();
+            entry.length = file.length();
+            entry.lastModified = file.lastModified();
+
+            File compiled = new File(file.getPath() + COMPILED_SUFFIX);
+            entry.topology = readCompiled(compiled, entry.length, entry.lastModified);
+            if (entry.topology == null) {
+                entry.topology = parse(file);
+                try {
+                    writeCompiled(entry.topology, compiled, entry.length, entry.lastModified);
+                } catch (IOException e) {
+                    System.err.println("Failed to cache compiled map into " + compiled.getAbsolutePath() + ": " + e);
+                }
+            }
+
+            loaded.put(key, entry);
+            return entry.topology;
+        }
+    }
+
+    public static MapTopology load(String path) {
+        return load(new File(path));
+    }
+
+    // ========
+    // DEFINITION
+    // ========
+
+    /**
+     * Parses the text definition, bypassing all caches.
+     */
+    public static MapTopology parse(File file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            return parse(reader, file.getPath());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read map definition " + file.getAbsolutePath(), e);
+        }
+    }
+
+    public static MapTopology parse(BufferedReader reader, String source) throws IOException {
+        List<int[]> continents = new ArrayList<int[]>();   // { id, reward }
+        List<String> continentNames = new ArrayList<String>();
+        List<int[]> regions = new ArrayList<int[]>();      // { id, continent }
+        List<String> regionNames = new ArrayList<String>();
+        List<int[]> neighborLines = new ArrayList<int[]>(); // { id, neighbour, neighbour, ... }
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            ++lineNumber;
+            int comment = line.indexOf('#');
+            if (comment >= 0) line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty()) continue;
+
+            String[] parts = line.split("\\s+");
+            try {
+                if (parts[0].equals("continent")) {
+                    continents.add(new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) });
+                    continentNames.add(rest(parts, 3));
+                } else if (parts[0].equals("region")) {
+                    regions.add(new int[] { Integer.parseInt(parts[1]), Integer.parseInt(parts[2]) });
+                    regionNames.add(rest(parts, 3));
+                } else if (parts[0].equals("neighbors")) {
+                    int[] ids = new int[parts.length - 1];
+                    for (int i = 0; i < ids.length; ++i)
+                        ids[i] = Integer.parseInt(parts[i + 1]);
+                    if (ids.length == 0) throw new IllegalArgumentException("missing region id");
+                    neighborLines.add(ids);
+                } else {
+                    throw new IllegalArgumentException("unknown entry '" + parts[0] + "'");
+                }
+            } catch (RuntimeException e) {
+                throw new RuntimeException(source + ":" + lineNumber + ": invalid map definition line '" + line + "': " + e.getMessage(), e);
+            }
+        }
+
+        int[] rewards = new int[continents.size() + 1];
+        String[] cNames = new String[continents.size() + 1];
+        for (int i = 0; i < continents.size(); ++i) {
+            int id = checkId(continents.get(i)[0], continents.size(), cNames, source, "continent");
+            rewards[id] = continents.get(i)[1];
+            cNames[id] = continentNames.get(i);
+        }
+
+        int[] continentOf = new int[regions.size() + 1];
+        String[] rNames = new String[regions.size() + 1];
+        for (int i = 0; i < regions.size(); ++i) {
+            int id = checkId(regions.get(i)[0], regions.size(), rNames, source, "region");
+            continentOf[id] = regions.get(i)[1];
+            rNames[id] = regionNames.get(i);
+        }
+
+        int[] degree = new int[regions.size() + 1];
+        for (int[] ids : neighborLines) {
+            if (ids[0] < 1 || ids[0] > regions.size())
+                throw new RuntimeException(source + ": neighbors of undefined region " + ids[0]);
+            degree[ids[0]] += ids.length - 1;
+        }
+        int[][] neighbors = new int[regions.size() + 1][];
+        for (int id = 1; id <= regions.size(); ++id)
+            neighbors[id] = new int[degree[id]];
+        for (int[] ids : neighborLines) {
+            int id = ids[0];
+            for (int i = 1; i < ids.length; ++i)
+                neighbors[id][--degree[id]] = ids[i];
+        }
+
+        try {
+            return new MapTopology(continentOf, rewards, neighbors, rNames, cNames);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException(source + ": invalid map: " + e.getMessage(), e);
+        }
+    }
+
+    private static String rest(String[] parts, int from) {
+        if (parts.length <= from) return null;
+        StringBuilder sb = new StringBuilder(parts[from]);
+        for (int i = from + 1; i < parts.length; ++i)
+            sb.append(' ').append(parts[i]);
+        return sb.toString();
+    }
+
+    private static int checkId(int id, int count, String[] names, String source, String what) {
+        if (id < 1 || id > count)
+            throw new RuntimeException(source + ": " + what + " ids must be 1.." + count + ", found " + id);
+        if (names[id] != null)
+            throw new RuntimeException(source + ": " + what + " " + id + " defined twice");
+        names[id] = "";
+        return id;
+    }
+
+    /**
+     * Writes 'topology' as a text definition that {@link #parse(File)} reads back.
+     */
+    public static void save(MapTopology topology, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.println("# " + topology.getRegionCount() + " regions, " + topology.getContinentCount() + " continents");
+            for (int c = 1; c <= topology.getContinentCount(); ++c)
+                out.println("continent " + c + " " + topology.getContinentReward(c) + " " + topology.getContinentName(c));
+            for (int id = 1; id <= topology.getRegionCount(); ++id)
+                out.println("region " + id + " " + topology.getContinentOf(id) + " " + topology.getRegionName(id));
+            for (int id = 1; id <= topology.getRegionCount(); ++id) {
+                StringBuilder sb = new StringBuilder();
+                for (int n : topology.getNeighbors(id))
+                    if (n > id) sb.append(' ').append(n);
+                if (sb.length() > 0)
+                    out.println("neighbors " + id + sb);
+            }
+            if (out.checkError())
+                throw new IOException("failed to write " + file.getAbsolutePath());
+        }
+    }
+
+    // ========
+    // COMPILED CACHE
+    // ========
+
+    /**
+     * @return topology stored in 'compiled' if it exists and was compiled from a definition of the given size
+     *         and modification time; null otherwise
+     */
+    static MapTopology readCompiled(File compiled, long sourceLength, long sourceLastModified) {
+        if (!compiled.isFile()) return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(compiled)))) {
+            if (in.readInt() != COMPILED_MAGIC || in.readInt() != COMPILED_VERSION) return null;
+            if (in.readLong() != sourceLength || in.readLong() != sourceLastModified) return null;
+
+            int continentCount = in.readInt();
+            int[] rewards = new int[continentCount + 1];
+            String[] continentNames = new String[continentCount + 1];
+            for (int c = 1; c <= continentCount; ++c) {
+                rewards[c] = in.readInt();
+                continentNames[c] = in.readUTF();
+            }
+
+            int regionCount = in.readInt();
+            int[] continentOf = new int[regionCount + 1];
+            String[] regionNames = new String[regionCount + 1];
+            int[][] neighbors = new int[regionCount + 1][];
+            for (int id = 1; id <= regionCount; ++id) {
+                continentOf[id] = in.readInt();
+                regionNames[id] = in.readUTF();
+                neighbors[id] = new int[in.readInt()];
+                for (int i = 0; i < neighbors[id].length; ++i)
+                    neighbors[id][i] = in.readInt();
+            }
+
+            return new MapTopology(continentOf, rewards, neighbors, regionNames, continentNames);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring invalid compiled map " + compiled.getAbsolutePath() + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes into a temporary file next to 'compiled' and renames it into place, so that other JVMs
+     * (e.g. games of a tournament running in parallel) never read a partially written file.
+     */
+    static void writeCompiled(MapTopology topology, File compiled, long sourceLength, long sourceLastModified) throws IOException {
+        File dir = compiled.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(compiled.getName() + ".", ".tmp", dir);
+        try {
+            writeCompiledTo(topology, temp, sourceLength, sourceLastModified);
+            try {
+                Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), compiled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private static void writeCompiledTo(MapTopology topology, File compiled, long sourceLength, long sourceLastModified) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(compiled)))) {
+            out.writeInt(COMPILED_MAGIC);
+            out.writeInt(COMPILED_VERSION);
+            out.writeLong(sourceLength);
+            out.writeLong(sourceLastModified);
+
+            out.writeInt(topology.getContinentCount());
+            for (int c = 1; c <= topology.getContinentCount(); ++c) {
+                out.writeInt(topology.getContinentReward(c));
+                out.writeUTF(topology.getContinentName(c));
+            }
+
+            out.writeInt(topology.getRegionCount());
+            for (int id = 1; id <= topology.getRegionCount(); ++id) {
+                out.writeInt(topology.getContinentOf(id));
+                out.writeUTF(topology.getRegionName(id));
+                int[] neighbors = topology.getNeighbors(id);
+                out.writeInt(neighbors.length);
+                for (int n : neighbors)
+                    out.writeInt(n);
+            }
+        }
+    }
+
+}
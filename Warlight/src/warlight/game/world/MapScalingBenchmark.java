@@ -0,0 +1,313 @@
+package warlight.game.world;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import warlight.engine.Config;
+import warlight.engine.GameResult;
+import warlight.engine.RunGame;
+import warlight.game.GameConfig;
+import warlight.game.GameMap;
+import warlight.game.GameState;
+import warlight.game.MapTopology;
+import warlight.game.Phase;
+import warlight.game.Region;
+import warlight.game.RegionSet;
+import warlight.game.move.AttackTransferMove;
+import warlight.game.move.PlaceArmiesMove;
+
+/**
+ * Plays simple greedy games on {@link MapGenerator generated} maps of growing size and reports the average cost
+ * of the GameState operations the engine and bots call every turn. Times that grow faster than the map size
+ * point at quadratic paths. 'clone+3' / 'fork+3' copy the state and change armies of 3 Regions in the copy,
+ * as a child of a lookahead search usually does; after the table they are timed again in a tight loop
+ * on a mid-game state, with and without the GameState around the map.
+ *
+ * With '-games' it plays whole headless {@link RunGame} games between real bots instead (AggressiveBot by default),
+ * through the {@link warlight.engine.Engine} with its map updates and the map setup of process bots,
+ * and reports the cost of a round.
+ *
+ * Usage: MapScalingBenchmark [regions...]
+ *        MapScalingBenchmark -games [-bot1 &lt;init&gt;] [-bot2 &lt;init&gt;] [regions...]
+ * where &lt;init&gt; is a bot init string of {@link Config#bot1Init}, e.g. "process:java -cp ... warlight.bot.external.JavaBot ...".
+ */
+public class MapScalingBenchmark {
+
+    private static final int ROUNDS = 30;
+
+    private static final int REPEAT = 20;
+
+    private static final int GAMES = 3;
+
+    private static final String DEFAULT_BOT = "internal:warlight.bot.custom.AggressiveBot";
+
+    public static void main(String[] args) {
+        boolean games = false;
+        String bot1 = DEFAULT_BOT, bot2 = DEFAULT_BOT;
+        List<Integer> sizeList = new ArrayList<Integer>();
+        for (int i = 0; i < args.length; ++i) {
+            if (args[i].equals("-games")) games = true;
+            else if (args[i].equals("-bot1") && i + 1 < args.length) bot1 = args[++i];
+            else if (args[i].equals("-bot2") && i + 1 < args.length) bot2 = args[++i];
+            else sizeList.add(Integer.parseInt(args[i]));
+        }
+        int[] sizes = new int[sizeList.size()];
+        for (int i = 0; i < sizes.length; ++i)
+            sizes[i] = sizeList.get(i);
+
+        if (games) {
+            if (sizes.length == 0) sizes = new int[] { 42, 1000, 5000 };
+            System.out.println(String.format("%8s %10s %10s %8s %10s %12s   %s",
+                "regions", "generate", "game", "rounds", "round", "round/1000r", "results"));
+            for (int size : sizes)
+                games(size, bot1, bot2);
+            return;
+        }
+
+        if (sizes.length == 0) sizes = new int[] { 42, 1000, 10000, 50000 };
+        System.out.println(String.format("%8s %10s %10s %10s %10s %10s %10s %10s %10s %10s %10s",
+            "regions", "generate", "init", "turn", "clone", "fork", "clone+3", "fork+3", "visible", "owned", "mapString"));
+        List<GameState> middles = new ArrayList<GameState>();
+        for (int size : sizes)
+            middles.add(run(size));
+
+        System.out.println();
+        System.out.println(String.format("%8s %12s %12s %12s %12s", "regions", "map clone+3", "map fork+3", "state clone+3", "state fork+3"));
+        for (GameState middle : middles)
+            compareCopies(middle);
+    }
+
+    /**
+     * Tight loops of copy + 3 changes, the first rounds to warm up the JIT.
+     */
+    private static void compareCopies(GameState state) {
+        GameMap map = state.getMap();
+        int n = map.getTopology().getRegionCount();
+        int iterations = Math.max(1000, 20000000 / (n + 100));
+        long[] times = new long[4];
+        int checksum = 0;
+        for (int round = 0; round < 3; ++round) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) checksum += changeThree(map.clone(), i, n);
+            times[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) checksum += changeThree(map.fork(), i, n);
+            times[1] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) checksum += changeThree(state.clone().getMap(), i, n);
+            times[2] = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; ++i) checksum += changeThree(state.fork().getMap(), i, n);
+            times[3] = System.nanoTime() - start;
+        }
+        System.out.println(String.format("%8d %12s %12s %12s %12s   (%d)", n,
+            ns(times[0] / iterations), ns(times[1] / iterations), ns(times[2] / iterations), ns(times[3] / iterations), checksum));
+    }
+
+    private static MapTopology generate(int size) {
+        if (size == WorldRegion.LAST_ID) return MapTopology.WORLD;
+        MapGenerator generator = new MapGenerator();
+        generator.regions = size;
+        generator.seed = size;
+        return generator.generate();
+    }
+
+    // ========
+    // GAMES
+    // ========
+
+    /**
+     * Plays {@link #GAMES} headless games between 'bot1' and 'bot2' on a generated map of 'size' regions
+     * (the standard map for 42).
+     */
+    private static void games(int size, String bot1, String bot2) {
+        long start = System.nanoTime();
+        MapTopology topology = generate(size);
+        long generate = System.nanoTime() - start;
+
+        // games load their map by path
+        File mapFile = null;
+        if (!topology.isWorld()) {
+            try {
+                mapFile = File.createTempFile("map-" + size + "-", ".txt");
+                MapLoader.save(topology, mapFile);
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to save the generated map", e);
+            }
+        }
+
+        long gameTime = 0;
+        int rounds = 0;
+        StringBuilder results = new StringBuilder();
+        PrintStream out = System.out;
+        try {
+            for (int game = 0; game < GAMES; ++game) {
+                Config config = new Config();
+                config.gameId = "SCALING-" + size + "-" + game;
+                config.bot1Init = bot1;
+                config.bot2Init = bot2;
+                config.botCommandTimeoutMillis = 24*60*60*1000;
+                config.visualize = false;
+                config.logToConsole = false;
+                config.game.seed = game;
+                config.game.maxGameRounds = ROUNDS;
+                config.game.map = mapFile == null ? null : mapFile.getPath();
+
+                // RunGame reports every round
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+                start = System.nanoTime();
+                GameResult result = new RunGame(config).go();
+                gameTime += System.nanoTime() - start;
+                System.setOut(out);
+
+                rounds += result.round;
+                results.append(result.getWinner()).append('@').append(result.round).append(' ');
+            }
+        } finally {
+            System.setOut(out);
+            if (mapFile != null) {
+                mapFile.delete();
+                new File(mapFile.getPath() + MapLoader.COMPILED_SUFFIX).delete();
+            }
+        }
+
+        long perRound = gameTime / Math.max(1, rounds);
+        System.out.println(String.format("%8d %10s %10s %8d %10s %12s   %s",
+            topology.getRegionCount(), ms(generate), ms(gameTime / GAMES), rounds / GAMES,
+            ms(perRound), ms(perRound * 1000 / topology.getRegionCount()), results.toString().trim()));
+    }
+
+    // ========
+    // GAME STATE
+    // ========
+
+    /**
+     * @return the state in the middle of the game
+     */
+    private static GameState run(int size) {
+        long start = System.nanoTime();
+        MapTopology topology = generate(size);
+        long generate = System.nanoTime() - start;
+
+        GameConfig config = new GameConfig();
+        config.seed = 42;
+        config.maxGameRounds = ROUNDS;
+
+        start = System.nanoTime();
+        GameState state = new GameState(config, GameState.makeInitMap(topology), null, null);
+        long init = System.nanoTime() - start;
+
+        Random random = new Random(size);
+        long turns = 0, turnTime = 0;
+        long clone = 0, fork = 0, cloneWrite = 0, forkWrite = 0, visible = 0, owned = 0, mapString = 0;
+        int checksum = 0;
+        GameState middle = null;
+
+        while (!state.isDone()) {
+            if (state.getPhase() == Phase.STARTING_REGIONS) {
+                state.chooseRegion(state.getPickableRegions().get(random.nextInt(state.getPickableRegions().size())));
+                continue;
+            }
+
+            if (state.getPhase() == Phase.PLACE_ARMIES) {
+                if (middle == null && state.getRoundNumber() >= ROUNDS / 2) middle = state.clone();
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += state.clone().getMap().numberRegionsOwned(1);
+                clone += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += state.fork().getMap().numberRegionsOwned(1);
+                fork += System.nanoTime() - start;
+
+                int n = topology.getRegionCount();
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += changeThree(state.clone().getMap(), i, n);
+                cloneWrite += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += changeThree(state.fork().getMap(), i, n);
+                forkWrite += System.nanoTime() - start;
+
+                GameMap map = state.getMap();
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += map.visibleRegionsForPlayer(state.me()).size();
+                visible += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += state.regionsOwnedBy(state.me()).size();
+                owned += System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for (int i = 0; i < REPEAT; ++i) checksum += map.getMapString().length();
+                mapString += System.nanoTime() - start;
+            }
+
+            start = System.nanoTime();
+            turn(state, random);
+            turnTime += System.nanoTime() - start;
+            ++turns;
+        }
+
+        long probes = Math.max(1, turns / 2) * REPEAT;
+        System.out.println(String.format("%8d %10s %10s %10s %10s %10s %10s %10s %10s %10s %10s   (%d)",
+            topology.getRegionCount(), ms(generate), ms(init), us(turnTime / Math.max(1, turns)),
+            us(clone / probes), us(fork / probes), us(cloneWrite / probes), us(forkWrite / probes), us(visible / probes), us(owned / probes), us(mapString / probes),
+            checksum));
+        return middle != null ? middle : state;
+    }
+
+    /**
+     * Adds an army to 3 Regions spread over the map.
+     */
+    private static int changeThree(GameMap map, int i, int regions) {
+        for (int k = 0; k < 3; ++k) {
+            int id = 1 + (i * 7 + k * regions / 3) % regions;
+            map.setArmies(id, map.getArmies(id) + 1);
+        }
+        return map.numberArmiesOwned(1);
+    }
+
+    /**
+     * One phase of a greedy player: place everything on a random frontier region,
+     * attack from every region with enough armies into a random foreign neighbour.
+     */
+    private static void turn(GameState state, Random random) {
+        int me = state.me();
+        if (state.getPhase() == Phase.PLACE_ARMIES) {
+            RegionSet frontier = state.getMap().getFrontierSet(me);
+            RegionSet from = frontier.isEmpty() ? state.regionSetOwnedBy(me) : frontier;
+            List<PlaceArmiesMove> moves = new ArrayList<PlaceArmiesMove>();
+            moves.add(new PlaceArmiesMove(from.getId(random.nextInt(from.size())), state.armiesPerTurn(me)));
+            state.placeArmies(moves);
+        } else {
+            List<AttackTransferMove> moves = new ArrayList<AttackTransferMove>();
+            for (Region region : state.getMap().getFrontierSet(me)) {
+                if (region.getArmies() < 3) continue;
+                List<Region> targets = new ArrayList<Region>();
+                for (Region neighbor : region.getNeighbors())
+                    if (!neighbor.isOwnedBy(me)) targets.add(neighbor);
+                moves.add(new AttackTransferMove(region, targets.get(random.nextInt(targets.size())), region.getArmies() - 1));
+            }
+            state.attackTransfer(moves);
+        }
+    }
+
+    private static String ms(long nanos) {
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    private static String ns(long nanos) {
+        return nanos + "ns";
+    }
+
+    private static String us(long nanos) {
+        return String.format("%.1fus", nanos / 1e3);
+    }
+
+}
@@ -380,7 +380,7 @@ public class GUI extends JFrame implements MouseListener, KeyListener
         this.requestFocusInWindow();
         
         //Update regions info
-        for(Region region : game.getMap().regions) {
+        for(Region region : game.getMap().getRegions()) {
             int id = region.getId();
             this.regions[id-1].setArmies(region.getArmies());
             this.regions[id-1].setText(Integer.toString(region.getArmies()));            
@@ -877,7 +877,7 @@ public class GUI extends JFrame implements MouseListener, KeyListener
     }
     
     boolean isNeighbor(Region r, Region s) {
-        return r.getNeighbors().contains(s);
+        return r.isNeighbor(s);
     }
     
     void regionClicked(RegionInfo ri, boolean left) {